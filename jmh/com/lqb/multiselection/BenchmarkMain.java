@@ -0,0 +1,22 @@
+package com.lqb.multiselection;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Runs the JMH benchmarks with the GC profiler, so gc.alloc.rate and gc.alloc.rate.norm are reported for each of them.
+ * 
+ * Usage: BenchmarkMain [regexp of the benchmarks to run]
+ */
+public class BenchmarkMain {
+	public static void main(String[] args) throws RunnerException {
+		Options options=new OptionsBuilder()
+				.include(args.length>0 ? args[0] : BenchmarkMain.class.getPackage().getName() + ".*")
+				.addProfiler(GCProfiler.class)
+				.build();
+		new Runner(options).run();
+	}
+}
@@ -0,0 +1,74 @@
+package com.lqb.multiselection;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * normalClick and ctrlClick cost by list size, for the Set based {@link ClickSelection} and for
+ * {@link RangeClickSelection}. Both use a {@link HashIndexResolver}, so this measures the selection and not the lookups.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Thread)
+@Warmup(iterations=3, time=1)
+@Measurement(iterations=5, time=1)
+@Fork(value=1, jvmArgsAppend={"-Xmx4g"})
+public class ClickGestureBenchmark {
+	@Param({"1000", "100000", "1000000", "10000000"})
+	int listSize;
+	
+	@Param({"set", "range"})
+	String mode;
+	
+	private ClickSelection<Integer> selection;
+	private List<Integer> list;
+	private int next=0;
+	
+	@Setup
+	public void setup() {
+		list=createList(listSize);
+		selection=createSelection(mode, list);
+	}
+	
+	@Benchmark
+	public void normalClick() {
+		selection.normalClick(list.get(next));
+		next=(next + 7919) % listSize;
+	}
+	
+	@Benchmark
+	public void ctrlClick() {
+		selection.ctrlClick(list.get(next));
+		next=(next + 7919) % listSize;
+	}
+	
+	static List<Integer> createList(int size) {
+		List<Integer> list=new ArrayList<Integer>(size);
+		for(int i=0; i<size; i++) {
+			list.add(i);
+		}
+		return list;
+	}
+	
+	static ClickSelection<Integer> createSelection(String mode, List<Integer> list) {
+		HashIndexResolver<Integer> resolver=new HashIndexResolver<Integer>(list);
+		resolver.indexOf(list.get(0));		//builds the map now, not in the first measured click
+		if("range".equals(mode)) {
+			return new RangeClickSelection<Integer>(list, resolver);
+		}
+		return new ClickSelection<Integer>(list, resolver);
+	}
+}
@@ -0,0 +1,60 @@
+package com.lqb.multiselection;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Overhead of the delayed normalClick in {@link DoubleClickSelection}: a normalClick over an already selected item
+ * schedules the click, and the following ctrlClick forces it to run and cancels it.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Thread)
+@Warmup(iterations=3, time=1)
+@Measurement(iterations=5, time=1)
+@Fork(1)
+public class DoubleClickBenchmark {
+	private DoubleClickSelection<Integer> selection;
+	private Integer first;
+	private Integer second;
+	
+	@Setup
+	public void setup() {
+		List<Integer> list=ClickGestureBenchmark.createList(1000);
+		first=list.get(0);
+		second=list.get(1);
+		selection=new DoubleClickSelection<Integer>(list);
+		selection.ctrlClick(first);
+		selection.ctrlClick(second);
+	}
+	
+	@TearDown
+	public void tearDown() {
+		selection.cleanup();
+	}
+	
+	@Benchmark
+	public void delayedNormalClick() {
+		selection.normalClick(first);		//selected: scheduled, maybe a double click comes
+		selection.ctrlClick(second);		//runs the scheduled click, and selects "second" again
+	}
+	
+	@Benchmark
+	public void normalClickNotSelected() {
+		selection.normalClick(second);
+		selection.ctrlClick(first);
+		selection.ctrlClick(second);
+	}
+}
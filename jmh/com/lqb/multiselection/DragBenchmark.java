@@ -0,0 +1,58 @@
+package com.lqb.multiselection;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Cost of a frame of a drag selection over a million items: 10 pointer moves, coalesced by a single flush. The swept
+ * range is already "sweptWidth" items wide and grows or shrinks by a few items per frame.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Thread)
+@Warmup(iterations=3, time=1)
+@Measurement(iterations=5, time=1)
+@Fork(value=1, jvmArgsAppend={"-Xmx4g"})
+public class DragBenchmark {
+	private static final int LIST_SIZE=1000000;
+	private static final int MOVES_PER_FRAME=10;
+	
+	@Param({"1000", "500000"})
+	int sweptWidth;
+	
+	@Param({"set", "range"})
+	String mode;
+	
+	private DragSelection<Integer> drag;
+	private int frame=0;
+	
+	@Setup
+	public void setup() {
+		List<Integer> list=ClickGestureBenchmark.createList(LIST_SIZE);
+		ClickSelection<Integer> selection=ClickGestureBenchmark.createSelection(mode, list);
+		drag=selection.beginDrag(0, 0);
+		drag.dragTo(sweptWidth);
+		drag.flush();
+	}
+	
+	@Benchmark
+	public void frame() {
+		int direction=((frame++ & 1)==0) ? 1 : -1;
+		for(int i=1; i<=MOVES_PER_FRAME; i++) {
+			drag.dragTo(sweptWidth + direction * i);
+		}
+		drag.flush();
+	}
+}
@@ -0,0 +1,107 @@
+package com.lqb.multiselection;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.google.common.eventbus.Subscribe;
+import com.lqb.multiselection.events.ClearSelectionEvent;
+import com.lqb.multiselection.events.SelectClickEvent;
+import com.lqb.multiselection.events.SelectionDeltaEvent;
+
+/**
+ * Cost of notifying a gesture (normalClick + shiftClick over 1000 items) to 0, 1 or N listeners, with one event per
+ * gesture or with per item events, through the Guava EventBus or through typed {@link SelectionListener}s.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Thread)
+@Warmup(iterations=3, time=1)
+@Measurement(iterations=5, time=1)
+@Fork(1)
+public class EventDispatchBenchmark {
+	private static final int LIST_SIZE=10000;
+	private static final int RANGE_WIDTH=1000;
+	
+	@Param({"0", "1", "8"})
+	int listeners;
+	
+	@Param({"false", "true"})
+	boolean perItemEvents;
+	
+	@Param({"eventbus", "typed"})
+	String api;
+	
+	private ClickSelection<Integer> selection;
+	private int anchor=0;
+	
+	@Setup
+	public void setup() {
+		List<Integer> list=ClickGestureBenchmark.createList(LIST_SIZE);
+		selection=ClickGestureBenchmark.createSelection("set", list);
+		selection.setPerItemEvents(perItemEvents);
+		for(int i=0; i<listeners; i++) {
+			if("typed".equals(api)) {
+				selection.addSelectionListener(new CountingSelectionListener());
+			} else {
+				selection.addListener(new CountingListener());
+			}
+		}
+	}
+	
+	@Benchmark
+	public void gesture() {
+		selection.normalClickAt(anchor);
+		selection.shiftClickAt(anchor + RANGE_WIDTH - 1);
+		anchor=(anchor + 7919) % (LIST_SIZE - RANGE_WIDTH + 1);
+	}
+	
+	public static class CountingListener {
+		public int count;
+		
+		@Subscribe
+		public void onDelta(SelectionDeltaEvent<Integer> event) {
+			count+=event.added.size();
+		}
+		
+		@Subscribe
+		public void onSelect(SelectClickEvent<Integer> event) {
+			count++;
+		}
+		
+		@Subscribe
+		public void onClear(ClearSelectionEvent<Integer> event) {
+			count++;
+		}
+	}
+	
+	public static class CountingSelectionListener extends SelectionAdapter<Integer> {
+		public int count;
+		
+		@Override
+		public void onDelta(SelectionDelta delta) {
+			count+=delta.added().size();
+		}
+		
+		@Override
+		public void onSelect(Integer element) {
+			count++;
+		}
+		
+		@Override
+		public void onClear() {
+			count++;
+		}
+	}
+}
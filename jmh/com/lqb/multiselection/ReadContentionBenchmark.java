@@ -0,0 +1,75 @@
+package com.lqb.multiselection;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * isSelected throughput of reader threads while another thread keeps doing ctrl clicks on the same selection, with
+ * and without read optimized mode. JMH reports the readers and the writer of the group separately.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Group)
+@Warmup(iterations=3, time=1)
+@Measurement(iterations=5, time=1)
+@Fork(1)
+public class ReadContentionBenchmark {
+	@Param({"1000"})
+	int listSize;
+	
+	@Param({"false", "true"})
+	boolean readOptimized;
+	
+	private List<Integer> list;
+	private ClickSelection<Integer> selection;
+	
+	@Setup
+	public void setup() {
+		list=new ArrayList<Integer>();
+		for(int i=0; i<listSize; i++) {
+			list.add(i);
+		}
+		selection=new ClickSelection<Integer>(list, new HashIndexResolver<Integer>(list));
+		selection.setReadOptimized(readOptimized);
+	}
+	
+	/**
+	 * Position of the next item read or clicked by each thread
+	 */
+	@State(Scope.Thread)
+	public static class Cursor {
+		int next=0;
+	}
+	
+	@Benchmark
+	@Group("contention")
+	@GroupThreads(1)
+	public void ctrlClick(Cursor cursor) {
+		selection.ctrlClick(list.get(cursor.next));
+		cursor.next=(cursor.next + 7) % listSize;
+	}
+	
+	@Benchmark
+	@Group("contention")
+	@GroupThreads(3)
+	public boolean isSelected(Cursor cursor) {
+		Integer element=list.get(cursor.next);
+		cursor.next=(cursor.next + 1) % listSize;
+		return selection.isSelected(element);
+	}
+}
@@ -0,0 +1,82 @@
+package com.lqb.multiselection;
+
+import java.awt.event.InputEvent;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Replay throughput of a recorded click log: calling click() in a loop, which locks and fires an event per click,
+ * against replay() and replayAt(), which lock once and fire the net change. Scores are clicks per microsecond.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Thread)
+@Warmup(iterations=3, time=1)
+@Measurement(iterations=5, time=1)
+@Fork(1)
+public class ReplayBenchmark {
+	private static final int LIST_SIZE=100000;
+	private static final int CLICKS=10000;
+	
+	@Param({"set", "range"})
+	String mode;
+	
+	@Param({"0", "1"})
+	int listeners;
+	
+	private ClickSelection<Integer> selection;
+	private final List<Integer> elements=new ArrayList<Integer>(CLICKS);
+	private final int[] indexes=new int[CLICKS];
+	private final int[] modifiers=new int[CLICKS];
+	
+	@Setup
+	public void setup() {
+		List<Integer> list=ClickGestureBenchmark.createList(LIST_SIZE);
+		selection=ClickGestureBenchmark.createSelection(mode, list);
+		for(int i=0; i<listeners; i++) {
+			selection.addListener(new EventDispatchBenchmark.CountingListener());
+		}
+		Random random=new Random(42);
+		int[] choices={0, 0, InputEvent.CTRL_MASK, InputEvent.CTRL_MASK, InputEvent.SHIFT_MASK};
+		for(int i=0; i<CLICKS; i++) {
+			indexes[i]=random.nextInt(LIST_SIZE);
+			elements.add(list.get(indexes[i]));
+			modifiers[i]=choices[random.nextInt(choices.length)];
+		}
+	}
+	
+	@Benchmark
+	@OperationsPerInvocation(CLICKS)
+	public void clickLoop() {
+		for(int i=0; i<CLICKS; i++) {
+			selection.click(elements.get(i), modifiers[i]);
+		}
+	}
+	
+	@Benchmark
+	@OperationsPerInvocation(CLICKS)
+	public void replay() {
+		selection.replay(elements, modifiers);
+	}
+	
+	@Benchmark
+	@OperationsPerInvocation(CLICKS)
+	public void replayAt() {
+		selection.replayAt(indexes, modifiers);
+	}
+}
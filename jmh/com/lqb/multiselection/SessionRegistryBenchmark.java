@@ -0,0 +1,83 @@
+package com.lqb.multiselection;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * 10k sessions over one shared list, clicked by 8 threads at once: sessions of a {@link SelectionRegistry}, which
+ * share the element to position map, against standalone RangeClickSelections with a {@link HashIndexResolver} each.
+ * Run with the GC profiler (see BenchmarkMain) to compare the allocations too: the gc.alloc.rate.norm of
+ * {@link #openSession} is what a session costs.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations=3, time=1)
+@Measurement(iterations=5, time=1)
+@Fork(value=1, jvmArgsAppend={"-Xmx4g"})
+@Threads(8)
+public class SessionRegistryBenchmark {
+	private static final int SESSIONS=10000;
+	private static final int LIST_SIZE=1000;
+	
+	@State(Scope.Benchmark)
+	public static class Sessions {
+		@Param({"registry", "standalone"})
+		String mode;
+		
+		List<Integer> list;
+		SelectionRegistry<Integer> registry;
+		List<RangeClickSelection<Integer>> selections;
+		
+		@Setup
+		public void setup() {
+			list=ClickGestureBenchmark.createList(LIST_SIZE);
+			selections=new ArrayList<RangeClickSelection<Integer>>(SESSIONS);
+			registry=new SelectionRegistry<Integer>(list);
+			for(int i=0; i<SESSIONS; i++) {
+				if("registry".equals(mode)) {
+					selections.add(registry.open(i));
+				} else {
+					selections.add(new RangeClickSelection<Integer>(list, new HashIndexResolver<Integer>(list)));
+				}
+			}
+		}
+	}
+	
+	@State(Scope.Thread)
+	public static class Clicker {
+		private final Random random=new Random();
+		private final Object sessionId=new Object();
+	}
+	
+	@Benchmark
+	public void gesture(Sessions sessions, Clicker clicker) {
+		RangeClickSelection<Integer> selection=sessions.selections.get(clicker.random.nextInt(SESSIONS));
+		int from=clicker.random.nextInt(LIST_SIZE);
+		selection.normalClick(sessions.list.get(from));
+		selection.shiftClick(sessions.list.get(Math.min(LIST_SIZE - 1, from + 50)));
+	}
+	
+	@Benchmark
+	public RangeClickSelection<Integer> openSession(Sessions sessions, Clicker clicker) {
+		if("registry".equals(sessions.mode)) {
+			sessions.registry.open(clicker.sessionId);
+			return sessions.registry.close(clicker.sessionId);
+		}
+		return new RangeClickSelection<Integer>(sessions.list, new HashIndexResolver<Integer>(sessions.list));
+	}
+}
@@ -0,0 +1,67 @@
+package com.lqb.multiselection;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * select / unselect and isSelected on a {@link SetSelection} holding "selected" items, with and without read optimized
+ * mode. Values are pre-boxed so the boxing is not measured.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Thread)
+@Warmup(iterations=3, time=1)
+@Measurement(iterations=5, time=1)
+@Fork(1)
+public class SetSelectionBenchmark {
+	@Param({"1000", "1000000"})
+	int selected;
+	
+	@Param({"false", "true"})
+	boolean readOptimized;
+	
+	private SetSelection<Integer> selection;
+	private Integer[] values;
+	private int next=0;
+	
+	@Setup
+	public void setup() {
+		selection=new SetSelection<Integer>();
+		values=new Integer[selected * 2];
+		for(int i=0; i<values.length; i++) {
+			values[i]=i;
+		}
+		for(int i=0; i<selected; i++) {
+			selection.select(values[i * 2]);
+		}
+		selection.setReadOptimized(readOptimized);
+	}
+	
+	@Benchmark
+	public boolean selectUnselect() {
+		Integer value=values[next];
+		next=(next + 1) % values.length;
+		if(selection.select(value)) {
+			return selection.unselect(value);
+		}
+		return false;
+	}
+	
+	@Benchmark
+	public boolean isSelected() {
+		Integer value=values[next];
+		next=(next + 1) % values.length;
+		return selection.isSelected(value);
+	}
+}
@@ -0,0 +1,66 @@
+package com.lqb.multiselection;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * shiftClick cost by range width and list size. anchorAndShiftClick sets a new anchor with a normalClick and then
+ * shift clicks "rangeWidth" items away, so the whole range is selected from scratch each time. dragShiftClick keeps
+ * the anchor and moves the end of a "rangeWidth" wide range back and forth by one item, so only that item changes.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Thread)
+@Warmup(iterations=3, time=1)
+@Measurement(iterations=5, time=1)
+@Fork(value=1, jvmArgsAppend={"-Xmx4g"})
+public class ShiftClickBenchmark {
+	@Param({"1000", "100000", "1000000", "10000000"})
+	int listSize;
+	
+	@Param({"10", "1000", "100000"})
+	int rangeWidth;
+	
+	@Param({"set", "range"})
+	String mode;
+	
+	private ClickSelection<Integer> selection;
+	private int width;
+	private int anchor=0;
+	private int dragEnd;
+	private int dragStep=0;
+	
+	@Setup
+	public void setup() {
+		List<Integer> list=ClickGestureBenchmark.createList(listSize);
+		selection=ClickGestureBenchmark.createSelection(mode, list);
+		width=Math.min(rangeWidth, listSize);
+		dragEnd=Math.min(rangeWidth, listSize - 1);
+		selection.normalClickAt(0);
+		selection.shiftClickAt(dragEnd);
+	}
+	
+	@Benchmark
+	public void anchorAndShiftClick() {
+		selection.normalClickAt(anchor);
+		selection.shiftClickAt(anchor + width - 1);
+		anchor=(anchor + 7919) % (listSize - width + 1);
+	}
+	
+	@Benchmark
+	public void dragShiftClick() {
+		selection.shiftClickAt(dragEnd - (++dragStep & 1));
+	}
+}
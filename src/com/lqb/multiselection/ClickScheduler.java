@@ -0,0 +1,131 @@
+package com.lqb.multiselection;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Decides when and where the normal clicks delayed by {@link DoubleClickSelection} are resolved:
+ * <ul>
+ * <li>{@link #shared()}: by the thread of a timer wheel shared by all the selections. The default</li>
+ * <li>{@link #on(Executor)}: timed by the shared timer, but run by the given executor. Pass the UI event loop, so the
+ * click is resolved and its events fired by the same thread doing the other gestures, with no lock handoff between
+ * threads. Or an executor starting a thread per task, i.e. virtual threads where available</li>
+ * <li>{@link #of(ScheduledExecutorService)}: timed and run by a ScheduledExecutorService</li>
+ * <li>{@link ManualClickScheduler}: run by whoever moves its clock forward, for deterministic tests and headless
+ * servers</li>
+ * <li>{@link #eventTime()}: never run by the scheduler, only by the timestamps given to the clicks</li>
+ * </ul>
+ * 
+ * Schedulers can be shared by any number of selections.
+ */
+public abstract class ClickScheduler {
+	private static final ClickScheduler SHARED=new WheelScheduler(null);
+	private static final ClickScheduler EVENT_TIME=new EventTimeScheduler();
+	
+	ClickScheduler() {
+	}
+	
+	public static ClickScheduler shared() {
+		return SHARED;
+	}
+	
+	/**
+	 * @param executor runs the delayed clicks once the shared timer finds them due
+	 * @return a scheduler handing the clicks to executor
+	 */
+	public static ClickScheduler on(Executor executor) {
+		return new WheelScheduler(executor);
+	}
+	
+	/**
+	 * @param executor times and runs the delayed clicks. It is not shut down by the selections using it
+	 * @return a scheduler using executor
+	 */
+	public static ClickScheduler of(ScheduledExecutorService executor) {
+		return new ExecutorScheduler(executor);
+	}
+	
+	/**
+	 * @return a scheduler that leaves time to the caller: delayed clicks are resolved by the next timed click coming
+	 * 			after them, or by {@link DoubleClickSelection#advanceTo(long)}
+	 */
+	public static ClickScheduler eventTime() {
+		return EVENT_TIME;
+	}
+	
+	/**
+	 * @return the current time, in nanoseconds, of the clock delays are measured with
+	 */
+	long nanoTime() {
+		return System.nanoTime();
+	}
+	
+	/**
+	 * Runs timeout once the delay is over. If it was already scheduled, the previous schedule is cancelled
+	 */
+	abstract void schedule(TimerWheel.Timeout timeout, long delayNanos);
+	
+	/**
+	 * Cancels timeout if it is scheduled. It may still run once if it is already due, so it should check that itself
+	 */
+	abstract void cancel(TimerWheel.Timeout timeout);
+	
+	private static class WheelScheduler extends ClickScheduler {
+		private final Executor runOn;
+		
+		WheelScheduler(Executor runOn) {
+			this.runOn=runOn;
+		}
+		
+		@Override
+		void schedule(TimerWheel.Timeout timeout, long delayNanos) {
+			TimerWheel.shared().schedule(timeout, delayNanos, TimeUnit.NANOSECONDS, runOn);
+		}
+		
+		@Override
+		void cancel(TimerWheel.Timeout timeout) {
+			TimerWheel.shared().cancel(timeout);
+		}
+	}
+	
+	private static class ExecutorScheduler extends ClickScheduler {
+		private final ScheduledExecutorService executor;
+		
+		ExecutorScheduler(ScheduledExecutorService executor) {
+			this.executor=executor;
+		}
+		
+		@Override
+		void schedule(TimerWheel.Timeout timeout, long delayNanos) {
+			synchronized(timeout) {
+				cancelFuture(timeout);
+				timeout.future=executor.schedule(timeout, delayNanos, TimeUnit.NANOSECONDS);
+			}
+		}
+		
+		@Override
+		void cancel(TimerWheel.Timeout timeout) {
+			synchronized(timeout) {
+				cancelFuture(timeout);
+			}
+		}
+		
+		private static void cancelFuture(TimerWheel.Timeout timeout) {
+			if(timeout.future!=null) {
+				timeout.future.cancel(false);
+				timeout.future=null;
+			}
+		}
+	}
+	
+	private static class EventTimeScheduler extends ClickScheduler {
+		@Override
+		void schedule(TimerWheel.Timeout timeout, long delayNanos) {
+		}
+		
+		@Override
+		void cancel(TimerWheel.Timeout timeout) {
+		}
+	}
+}
@@ -1,12 +1,19 @@
 package com.lqb.multiselection;
 
 import java.awt.event.InputEvent;
+import java.util.Arrays;
+import java.util.HashSet;
 import java.util.List;
 import java.util.ListIterator;
+import java.util.Set;
+import java.util.concurrent.Executor;
 
 import com.google.common.eventbus.EventBus;
 import com.lqb.multiselection.events.ClearSelectionEvent;
+import com.lqb.multiselection.events.DoubleClickEvent;
+import com.lqb.multiselection.events.RangeSelectClickEvent;
 import com.lqb.multiselection.events.SelectClickEvent;
+import com.lqb.multiselection.events.SelectionDeltaEvent;
 import com.lqb.multiselection.events.UnselectClickEvent;
 
 /**
@@ -22,18 +29,66 @@ import com.lqb.multiselection.events.UnselectClickEvent;
  *
  * In general it works pretty much like Windows would do
  * 
- * This API is assuming that when an item is removed from the collection, you unselect it from here.
+ * Listeners get a single {@link SelectionDeltaEvent} per gesture. The old per item events can be turned back on with
+ * {@link #setPerItemEvents(boolean)}. A {@link SelectionListener} is called directly, with no event objects nor
+ * reflection in between. Listeners given to {@link #addListener(Object)} get the events through a Guava EventBus.
+ * 
+ * This API is assuming that when the collection changes, you tell it with {@link #itemsInserted(int, int)},
+ * {@link #itemsRemoved(int, List)} or {@link #itemMoved(int, int)}, so removed items are unselected and positions kept
+ * up to date.
+ * 
+ * Gestures can be undone and redone once {@link #setUndoLimit(int, long)} is set.
+ * 
+ * The keyboard is supported with {@link #moveLead(int, int)}, {@link #moveLeadTo(int, int)} and {@link #toggleLead()},
+ * and drag selection with {@link #beginDrag(int, int)}.
  *
  * @param <T>
  */
 public class ClickSelection<T> extends SetSelection<T> {
-	private final List<T> collection;		//this contains the collection in which elements in "selection" will be selected.
+	protected final List<T> collection;		//this contains the collection in which elements in "selection" will be selected.
+	protected final IndexResolver<T> resolver;
 	private T lastModified=null;
+	private SelectionDelta delta=null;		//changes done by the gesture in progress, null until the first one
+	private boolean perItemEvents=false;
+	private boolean replaying=false;		//per item events are skipped while replaying
+	private boolean shifted=false;		//the collection changed during the gesture in progress
 	
-	protected EventBus eventBus=new EventBus();
+	private volatile EventBus eventBus=null;		//created by the first listener, so selections nobody listens to don't pay for it
+	private volatile SelectionListener<T>[] listeners=noListeners();		//copied on write, the EventBus is one of them
+	private CoalescingDispatcher<T> dispatcher=null;		//null when events are posted synchronously
+	private SelectionHistory history=null;		//null when undo is off
+	private volatile SelectionMetrics metrics=null;		//null when not measured, so the clock is not even read
+	private SelectionMetrics measuredBy=null;		//metrics of the gesture in progress, if it is measured
+	private long gestureStart;
+	private long lockAcquired;
+	private int gestureEvents;
+	private long gestures=0;		//gestures begun, nested ones too
+	private long navigatedAt=-1;		//value of "gestures" when the last keyboard move or shift click ended
+	private int lead=-1;		//focused position, up to date only while nothing else happened since that move
+	private int navAnchor=-1;
+	private boolean leadRangeSelected=false;		//true if all of navAnchor..lead was selected after that move
 	
 	public ClickSelection(List<T> collection) {
+		this(collection, new ListIndexResolver<T>(collection));
+	}
+	
+	/**
+	 * @param collection
+	 * @param resolver used to find the position of the clicked elements in collection. i.e. a {@link HashIndexResolver}
+	 * 			avoids the linear List.indexOf lookups on big collections
+	 */
+	public ClickSelection(List<T> collection, IndexResolver<T> resolver) {
 		this.collection=collection;
+		this.resolver=resolver;
+	}
+	
+	/**
+	 * Selects out of items that are not in memory. The source is also used to find the position of the clicked items.
+	 * 
+	 * @param source
+	 */
+	public ClickSelection(SelectionSource<T> source) {
+		this(new SourceList<T>(source), source);
 	}
 	
 
@@ -46,51 +101,454 @@ public class ClickSelection<T> extends SetSelection<T> {
 	 * @param element 
 	 */
 	public void normalClick(T element) {
-		lock.lock();
+		beginGesture();
 		try {
-			if(collection.size()==0) {
-				return;
+			normalClick(element, -1);
+		} finally {
+			endGesture();
+		}
+	}
+	
+	private void normalClick(T element, int index) {
+		if(collection.size()==0) {
+			return;
+		} else {
+			boolean isElementSelected=isSelected(element);
+			int selectionSize=size();
+			clearSelectionInternal();
+			if(!isElementSelected) {
+				selectInternal(element, index);
 			} else {
-				boolean isElementSelected=isSelected(element);
-				int selectionSize=size();
-				clearSelectionInternal();
-				if(!isElementSelected) {
-					selectInternal(element);
+				if(selectionSize>1) {
+					selectInternal(element, index);
 				} else {
-					if(selectionSize>1) {
-						selectInternal(element);
-					} else {
-					}
 				}
-				lastModified=element;
 			}
+			lastModified=element;
+		}
+	}
+	
+	/**
+	 * Takes the lock for a gesture. Changes done until the matching {@link #endGesture()} are notified as a single
+	 * {@link SelectionDeltaEvent}. Gestures can be nested, only the outermost one fires.
+	 */
+	protected void beginGesture() {
+		SelectionMetrics m=metrics;
+		if(m==null || lock.isHeldByCurrentThread()) {
+			lock.lock();
+		} else {
+			long start=System.nanoTime();
+			lock.lock();
+			measuredBy=m;
+			gestureStart=start;
+			lockAcquired=System.nanoTime();
+			gestureEvents=0;
+		}
+		gestures++;
+		if(history!=null && lock.getHoldCount()==1) {
+			history.begin(anchorIndex());
+		}
+	}
+	
+	/**
+	 * Direct changes leave the selection out of step with the lead, so the next keyboard move or shift click starts
+	 * over
+	 */
+	@Override
+	protected void lockForChange() {
+		super.lockForChange();
+		navigatedAt=-1;
+	}
+	
+	/**
+	 * Fires the changes collected since the outermost {@link #beginGesture()} and releases the lock
+	 */
+	protected void endGesture() {
+		try {
+			if(history!=null && lock.getHoldCount()==1) {
+				history.end(anchorIndex());
+			}
+			if(lock.getHoldCount()==1 && delta!=null) {
+				SelectionDelta changes=delta;
+				delta=null;
+				if(!changes.isEmpty()) {
+					fireSelectionDelta(changes);
+				}
+			}
+			if(lock.getHoldCount()==1 && shifted) {
+				shifted=false;
+				if(dispatcher!=null) {
+					dispatcher.barrier();
+				}
+			}
+			if(measuredBy!=null && lock.getHoldCount()==1) {
+				long end=System.nanoTime();
+				measuredBy.gesture(end - gestureStart, lockAcquired - gestureStart, end - lockAcquired, gestureEvents);
+				measuredBy=null;
+			}
+		} finally {
+			unlock();
+		}
+	}
+	
+	/**
+	 * @param perItemEvents true to fire {@link SelectClickEvent}, {@link UnselectClickEvent} and {@link ClearSelectionEvent}
+	 * 			for every single change, as it was done before {@link SelectionDeltaEvent}. Off by default
+	 */
+	public void setPerItemEvents(boolean perItemEvents) {
+		lock.lock();
+		try {
+			this.perItemEvents=perItemEvents;
+		} finally {
+			lock.unlock();
+		}
+	}
+	
+	/**
+	 * By default listeners are called synchronously, by the thread doing the gesture and with the lock held.
+	 * 
+	 * With an executor, events are queued while holding the lock and delivered later from the executor, one at a time
+	 * and in order, so slow listeners don't delay gestures. {@link SelectionDeltaEvent}s queued one after the other
+	 * are merged into one with the net change while the listeners are busy. As they run later, listeners may see a
+	 * selection that is already newer than the event they are handling.
+	 * 
+	 * @param executor i.e. a single thread executor, or one posting to the UI event loop. null to go back to
+	 * 			synchronous dispatch
+	 */
+	public void setAsyncDispatch(Executor executor) {
+		lock.lock();
+		try {
+			dispatcher=(executor==null) ? null : new CoalescingDispatcher<T>(this, executor);
+		} finally {
+			lock.unlock();
+		}
+	}
+	
+	/**
+	 * @param metrics receives the latency, lock wait and hold times and events of every gesture, the width of the
+	 * 			selected ranges and the time listeners take. null, the default, to measure nothing
+	 */
+	public void setMetrics(SelectionMetrics metrics) {
+		this.metrics=metrics;
+	}
+	
+	/**
+	 * @return the metrics set, or null
+	 */
+	protected SelectionMetrics metrics() {
+		return metrics;
+	}
+	
+	/**
+	 * Reports the width of a range being selected to the metrics, if any
+	 */
+	protected void measureRange(int from, int to) {
+		SelectionMetrics m=metrics;
+		if(m!=null) {
+			m.rangeSelected(Math.abs(to - from) + 1);
+		}
+	}
+	
+	/**
+	 * Keeps the last gestures, so they can be undone with {@link #undo()} and redone with {@link #redo()}. Every step
+	 * only keeps the positions it changed, as ranges. Changes to the collection drop the history, as its positions are
+	 * no longer valid.
+	 * 
+	 * @param maxSteps how many gestures can be undone. 0 turns undo off, dropping the history
+	 * @param maxBytes the oldest steps are dropped when the estimated memory of the history goes over this
+	 */
+	public void setUndoLimit(int maxSteps, long maxBytes) {
+		lock.lock();
+		try {
+			history=(maxSteps > 0) ? new SelectionHistory(maxSteps, maxBytes) : null;
+		} finally {
+			lock.unlock();
+		}
+	}
+	
+	/**
+	 * Reverts the last gesture, and the starting point for shift operations, as a new gesture for the listeners.
+	 * Costs O(size of that gesture's change), not O(size of the selection).
+	 * 
+	 * @return false if there was nothing to undo
+	 */
+	public boolean undo() {
+		beginGesture();
+		try {
+			SelectionHistory.Step step=(history==null) ? null : history.undo();
+			if(step==null) {
+				return false;
+			}
+			applyInternal(step.added, step.removed);
+			setAnchorIndex(step.anchorBefore);
+			return true;
+		} finally {
+			endGesture();
+		}
+	}
+	
+	/**
+	 * Applies again the last gesture reverted by {@link #undo()}. Any new gesture after undo drops the ones that
+	 * could be redone.
+	 * 
+	 * @return false if there was nothing to redo
+	 */
+	public boolean redo() {
+		beginGesture();
+		try {
+			SelectionHistory.Step step=(history==null) ? null : history.redo();
+			if(step==null) {
+				return false;
+			}
+			applyInternal(step.removed, step.added);
+			setAnchorIndex(step.anchorAfter);
+			return true;
+		} finally {
+			endGesture();
+		}
+	}
+	
+	public boolean canUndo() {
+		lock.lock();
+		try {
+			return history!=null && history.canUndo();
+		} finally {
+			lock.unlock();
+		}
+	}
+	
+	public boolean canRedo() {
+		lock.lock();
+		try {
+			return history!=null && history.canRedo();
 		} finally {
 			lock.unlock();
 		}
 	}
 	
-	private void clearSelectionInternal() {
+	private void applyInternal(IndexRangeSet unselect, IndexRangeSet select) {
+		int last=collection.size() - 1;
+		for(IndexRangeSet.Range range : unselect.ranges(0, last)) {
+			unselectRangeInternal(range.from, range.to);
+		}
+		for(IndexRangeSet.Range range : select.ranges(0, last)) {
+			selectRangeInternal(range.from, range.to);
+		}
+	}
+	
+	/**
+	 * @return position of the starting point for shift operations, or -1 if there is none
+	 */
+	protected int anchorIndex() {
+		return (lastModified==null) ? -1 : resolver.indexOf(lastModified);
+	}
+	
+	/**
+	 * @param index position of the new starting point for shift operations, or -1 for none
+	 */
+	protected void setAnchorIndex(int index) {
+		lastModified=(index>=0 && index<collection.size()) ? collection.get(index) : null;
+	}
+	
+	/**
+	 * @return the positions of the selected elements, found with a single scan of the collection unless the resolver
+	 * 			is cheaper
+	 */
+	protected IndexRangeSet selectedPositions() {
+		return positionsOf(snapshot());
+	}
+	
+	protected void clearSelectionInternal() {
+		if(history!=null) {
+			for(IndexRangeSet.Range range : selectedPositions().ranges()) {
+				history.recordRemoved(range.from, range.to);
+			}
+		}
 		clearSelection();
-		fireClearSelection();
+		if(recordsChanges()) {
+			delta().recordClear();
+		}
+		if(isPerItemEvents()) {
+			fireClearSelection();
+		}
 	}
 	
-	private boolean selectInternal(T element) {
+	/**
+	 * @param element
+	 * @param index position of element, or -1 to look it up when needed
+	 */
+	private boolean selectInternal(T element, int index) {
 		if(select(element)) {
-			fireSelectItem(element);
+			recordElementAdded(element, index);
+			if(isPerItemEvents()) {
+				fireSelectItem(element);
+			}
+			return true;
+		}
+		return false;
+	}
+	
+	private boolean unselectInternal(T element, int index) {
+		if(unselect(element)) {
+			recordElementRemoved(element, index);
+			if(isPerItemEvents()) {
+				fireUnselectItem(element);
+			}
 			return true;
 		}
 		return false;
 	}
 	
-	private void toggleInternal(T element) {
+	private void toggleInternal(T element, int index) {
 		toggle(element);
 		if(isSelected(element)) {
-			fireSelectItem(element);
+			recordElementAdded(element, index);
+			if(isPerItemEvents()) {
+				fireSelectItem(element);
+			}
+		} else {
+			recordElementRemoved(element, index);
+			if(isPerItemEvents()) {
+				fireUnselectItem(element);
+			}
+		}
+	}
+	
+	private void recordElementAdded(T element, int index) {
+		if(index<0) {
+			if(!recordsChanges()) {
+				return;
+			}
+			index=resolver.indexOf(element);
+		}
+		if(index>=0) {
+			recordAdded(index, index);
+		}
+	}
+	
+	private void recordElementRemoved(T element, int index) {
+		if(index<0) {
+			if(!recordsChanges()) {
+				return;
+			}
+			index=resolver.indexOf(element);
+		}
+		if(index>=0) {
+			recordRemoved(index, index);
+		}
+	}
+	
+	/**
+	 * Records and fires the elements a bulk change selected, looking up their positions all at once
+	 * 
+	 * @return true if there were any
+	 */
+	private boolean recordElementsAdded(Set<T> added) {
+		if(recordsChanges()) {
+			for(IndexRangeSet.Range range : positionsOf(added).ranges()) {
+				recordAdded(range.from, range.to);
+			}
+		}
+		if(isPerItemEvents()) {
+			for(T element : added) {
+				fireSelectItem(element);
+			}
+		}
+		return !added.isEmpty();
+	}
+	
+	/**
+	 * Same as {@link #recordElementsAdded(Set)}, for the elements a bulk change unselected
+	 */
+	private boolean recordElementsRemoved(Set<T> removed) {
+		if(recordsChanges()) {
+			for(IndexRangeSet.Range range : positionsOf(removed).ranges()) {
+				recordRemoved(range.from, range.to);
+			}
+		}
+		if(isPerItemEvents()) {
+			for(T element : removed) {
+				fireUnselectItem(element);
+			}
+		}
+		return !removed.isEmpty();
+	}
+	
+	/**
+	 * @param elements
+	 * @return the positions of the elements that are in the collection. With the default {@link ListIndexResolver} the
+	 * 			collection is scanned once, instead of once per element
+	 */
+	protected IndexRangeSet positionsOf(Iterable<? extends T> elements) {
+		IndexRangeSet res=new IndexRangeSet();
+		if(resolver instanceof ListIndexResolver<?>) {
+			Set<Object> left=new HashSet<Object>();
+			for(T element : elements) {
+				left.add(element);
+			}
+			for(int i=0; i<collection.size() && !left.isEmpty(); i++) {
+				if(left.remove(collection.get(i))) {
+					res.add(i, i);
+				}
+			}
 		} else {
-			fireUnselectItem(element);
+			for(T element : elements) {
+				int index=resolver.indexOf(element);
+				if(index>=0) {
+					res.add(index, index);
+				}
+			}
+		}
+		return res;
+	}
+	
+	private SelectionDelta delta() {
+		if(delta==null) {
+			delta=new SelectionDelta();
+		}
+		return delta;
+	}
+	
+	/**
+	 * Records for the listeners and the undo history that the positions between from and to (both inclusive) were not
+	 * selected, and now they are
+	 */
+	protected void recordAdded(int from, int to) {
+		if(!recordsChanges()) {
+			return;
+		}
+		delta().recordAdded(from, to);
+		if(history!=null) {
+			history.recordAdded(from, to);
+		}
+	}
+	
+	/**
+	 * Records for the listeners and the undo history that the positions between from and to (both inclusive) were
+	 * selected, and now they are not
+	 */
+	protected void recordRemoved(int from, int to) {
+		if(!recordsChanges()) {
+			return;
+		}
+		delta().recordRemoved(from, to);
+		if(history!=null) {
+			history.recordRemoved(from, to);
 		}
 	}
 	
+	/**
+	 * @return false if nobody listens and undo is off, so the positions changed are not even looked up and no
+	 * 			{@link SelectionDelta} is fired
+	 */
+	private boolean recordsChanges() {
+		return history!=null || dispatcher!=null || listeners.length > 0;
+	}
+	
+	protected boolean isPerItemEvents() {
+		return perItemEvents && !replaying;
+	}
+	
 	public void shiftCtrlClick(T element) {
 		shiftClick(element, false);
 	}
@@ -99,64 +557,367 @@ public class ClickSelection<T> extends SetSelection<T> {
 		shiftClick(element, true);
 	}
 	
-	private void shiftClick(T element, boolean clearSelection) {
-		lock.lock();
+	protected void shiftClick(T element, boolean clearSelection) {
+		beginGesture();
 		try {
-			if(collection.size()==0) {
+			int index=resolver.indexOf(element);
+			if(index<0)
+				return;
+			shiftClickAt(index, clearSelection);
+		} finally {
+			endGesture();
+		}
+	}
+	
+	/**
+	 * Same as {@link #normalClick(Object)}, but the caller supplies the position of the element in the collection
+	 * 
+	 * @param index
+	 */
+	public void normalClickAt(int index) {
+		beginGesture();
+		try {
+			if(index<0 || index>=collection.size())
+				return;
+			normalClick(collection.get(index), index);
+		} finally {
+			endGesture();
+		}
+	}
+	
+	/**
+	 * Same as {@link #ctrlClick(Object)}, but the caller supplies the position of the element in the collection
+	 * 
+	 * @param index
+	 */
+	public void ctrlClickAt(int index) {
+		beginGesture();
+		try {
+			if(index<0 || index>=collection.size())
+				return;
+			ctrlClick(collection.get(index), index);
+		} finally {
+			endGesture();
+		}
+	}
+	
+	/**
+	 * Same as {@link #shiftClick(Object)}, but the caller supplies the position of the element in the collection,
+	 * so it doesn't need to be looked up
+	 * 
+	 * @param index
+	 */
+	public void shiftClickAt(int index) {
+		shiftClickAt(index, true);
+	}
+	
+	public void shiftCtrlClickAt(int index) {
+		shiftClickAt(index, false);
+	}
+	
+	protected void shiftClickAt(int index, boolean clearSelection) {
+		beginGesture();
+		try {
+			if(index<0 || index>=collection.size()) {
 				return;
 			} else {
-				int index=collection.indexOf(element);
-				if(index<0)
-					return;
-							
 				int latestSelected=0;
-				if(lastModified!=null) {
-					int res=collection.indexOf(lastModified);
+				if(continuesNavigation(0)) {
+					latestSelected=navAnchor;
+				} else if(lastModified!=null) {
+					int res=resolver.indexOf(lastModified);
 					if(res>=0) {
 						latestSelected=res;
 					}
 				}
 				
-				if(clearSelection) {
-					clearSelectionInternal();
-				}
-				
-				if(index < latestSelected) {
-					ListIterator<T> li = collection.listIterator(latestSelected + 1);
-					while(li.hasPrevious()) {
-						T currentElement=li.previous();
-						selectInternal(currentElement);
-						if(currentElement.equals(element)) {
-							break;
-						}
-					}
-				} else {
-					ListIterator<T> li = collection.listIterator(latestSelected);
-					while(li.hasNext()) {
-						T currentElement=li.next();
-						selectInternal(currentElement);
-						if(currentElement.equals(element)) {
-							break;
-						}
-					}
-				}
+				selectShiftRangeInternal(latestSelected, index, clearSelection);
 			}
 		} finally {
-			lock.unlock();
+			endGesture();
 		}
 	}
 	
-	public void ctrlClick(T element) {
-		lock.lock();
-		try {
-			if(collection.size()==0) {
-				return;
-			} else {
-				toggleInternal(element);
-				lastModified=element;
+	/**
+	 * Selects all the items between both positions, inclusive, walking from "from" to "to"
+	 * 
+	 * @param from
+	 * @param to
+	 */
+	protected void selectRangeInternal(int from, int to) {
+		measureRange(from, to);
+		if(to < from) {
+			ListIterator<T> li = collection.listIterator(from + 1);
+			while(li.previousIndex()>=to) {
+				int current=li.previousIndex();
+				selectInternal(li.previous(), current);
+			}
+		} else {
+			ListIterator<T> li = collection.listIterator(from);
+			while(li.nextIndex()<=to) {
+				int current=li.nextIndex();
+				selectInternal(li.next(), current);
 			}
-		} finally {
-			lock.unlock();
+		}
+	}
+	
+	/**
+	 * Selects every item of the collection that is not selected, and unselects the ones that are
+	 */
+	protected void invertSelectionInternal() {
+		ListIterator<T> li = collection.listIterator();
+		while(li.hasNext()) {
+			int current=li.nextIndex();
+			T element=li.next();
+			if(!selectInternal(element, current)) {
+				unselectInternal(element, current);
+			}
+		}
+	}
+	
+	/**
+	 * Unselects all the items between both positions, inclusive
+	 * 
+	 * @param from
+	 * @param to
+	 */
+	protected void unselectRangeInternal(int from, int to) {
+		ListIterator<T> li = collection.listIterator(from);
+		while(li.nextIndex()<=to) {
+			int current=li.nextIndex();
+			unselectInternal(li.next(), current);
+		}
+	}
+	
+	/**
+	 * Selects all the items between both positions, inclusive, as a single gesture. The starting point for shift
+	 * operations doesn't change.
+	 * 
+	 * @param from
+	 * @param to
+	 */
+	public void selectRange(int from, int to) {
+		beginGesture();
+		try {
+			if(collection.size()==0) {
+				return;
+			}
+			int last=collection.size() - 1;
+			selectRangeInternal(Math.max(0, Math.min(from, last)), Math.max(0, Math.min(to, last)));
+		} finally {
+			endGesture();
+		}
+	}
+	
+	/**
+	 * Selects all the given positions as a single gesture, i.e. a selection read with {@link SelectionFile}. Positions
+	 * out of the collection are ignored, and the starting point for shift operations doesn't change.
+	 * 
+	 * @param positions
+	 */
+	public void selectPositions(IndexRangeSet positions) {
+		beginGesture();
+		try {
+			if(positions.isEmpty() || collection.isEmpty()) {
+				return;
+			}
+			for(IndexRangeSet.Range range : positions.ranges(0, collection.size() - 1)) {
+				selectRangeInternal(range.from, range.to);
+			}
+		} finally {
+			endGesture();
+		}
+	}
+	
+	/**
+	 * Same as {@link SetSelection#union(Iterable)}, as a single gesture
+	 */
+	@Override
+	public boolean union(Iterable<? extends T> other) {
+		Iterable<? extends T> items=snapshotOf(other);
+		beginGesture();
+		try {
+			return recordElementsAdded(addAllInternal(items));
+		} finally {
+			endGesture();
+		}
+	}
+	
+	/**
+	 * Same as {@link SetSelection#intersect(Iterable)}, as a single gesture
+	 */
+	@Override
+	public boolean intersect(Iterable<? extends T> other) {
+		Set<?> keep=setOf(other);
+		beginGesture();
+		try {
+			return recordElementsRemoved(retainAllInternal(keep));
+		} finally {
+			endGesture();
+		}
+	}
+	
+	/**
+	 * Same as {@link SetSelection#subtract(Iterable)}, as a single gesture
+	 */
+	@Override
+	public boolean subtract(Iterable<? extends T> other) {
+		Iterable<? extends T> items=snapshotOf(other);
+		beginGesture();
+		try {
+			return recordElementsRemoved(removeAllInternal(items));
+		} finally {
+			endGesture();
+		}
+	}
+	
+	public void selectAll() {
+		selectRange(0, Integer.MAX_VALUE);
+	}
+	
+	/**
+	 * Clears the selection as a gesture, so listeners are notified
+	 */
+	public void selectNone() {
+		beginGesture();
+		try {
+			clearSelectionInternal();
+		} finally {
+			endGesture();
+		}
+	}
+	
+	/**
+	 * Selects every item of the collection that is not selected, and unselects the ones that are, as a single gesture
+	 */
+	public void invertSelection() {
+		beginGesture();
+		try {
+			invertSelectionInternal();
+		} finally {
+			endGesture();
+		}
+	}
+	
+	/**
+	 * Must be called after inserting count items at index in the collection. New items are not selected.
+	 * 
+	 * @param index
+	 * @param count
+	 */
+	public void itemsInserted(int index, int count) {
+		beginGesture();
+		try {
+			itemsInsertedInternal(index, count);
+			collectionChanged();
+		} finally {
+			endGesture();
+		}
+	}
+	
+	/**
+	 * Must be called after removing some contiguous items from the collection. The ones that were selected are
+	 * unselected, listeners get their positions as they were before the removal.
+	 * 
+	 * @param index position of the first removed item
+	 * @param removed the removed items, in the order they had
+	 */
+	public void itemsRemoved(int index, List<? extends T> removed) {
+		beginGesture();
+		try {
+			itemsRemovedInternal(index, removed);
+			collectionChanged();
+		} finally {
+			endGesture();
+		}
+	}
+	
+	/**
+	 * Must be called after moving the item at position "from" to position "to" of the collection. Its selection moves
+	 * with it.
+	 * 
+	 * @param from
+	 * @param to
+	 */
+	public void itemMoved(int from, int to) {
+		beginGesture();
+		try {
+			itemMovedInternal(from, to);
+			collectionChanged();
+		} finally {
+			endGesture();
+		}
+	}
+	
+	/**
+	 * Positions kept for undo, or by a {@link HashIndexResolver}, are no longer valid once the collection changes
+	 */
+	protected void collectionChanged() {
+		shifted=true;
+		if(history!=null) {
+			history.clear();
+		}
+		if(resolver instanceof HashIndexResolver<?>) {
+			((HashIndexResolver<?>) resolver).invalidate();
+		}
+	}
+	
+	/**
+	 * Nothing to do here, as the selection and the starting point for shift operations are kept as elements
+	 */
+	protected void itemsInsertedInternal(int index, int count) {
+	}
+	
+	protected void itemsRemovedInternal(int index, List<? extends T> removed) {
+		int current=index;
+		for(T element : removed) {
+			unselectInternal(element, current);
+			if(element!=null && element.equals(lastModified)) {
+				lastModified=null;
+			}
+			current++;
+		}
+	}
+	
+	/**
+	 * Nothing to do here, as the selection and the starting point for shift operations are kept as elements
+	 */
+	protected void itemMovedInternal(int from, int to) {
+	}
+	
+	public void ctrlClick(T element) {
+		beginGesture();
+		try {
+			ctrlClick(element, -1);
+		} finally {
+			endGesture();
+		}
+	}
+	
+	private void ctrlClick(T element, int index) {
+		if(collection.size()==0) {
+			return;
+		} else {
+			toggleInternal(element, index);
+			lastModified=element;
+		}
+	}
+
+	/**
+	 * Same as {@link #click(Object, int)}, but the caller supplies the position of the element in the collection
+	 * 
+	 * @param index
+	 * @param modifiers
+	 */
+	public void clickAt(int index, int modifiers) {
+		boolean ctrlPressed=((modifiers & InputEvent.CTRL_MASK) > 0);
+		boolean shiftPressed=((modifiers & InputEvent.SHIFT_MASK) > 0);
+		if(shiftPressed) {
+			shiftClickAt(index, !ctrlPressed);
+		} else if(ctrlPressed) {
+			ctrlClickAt(index);
+		} else {
+			normalClickAt(index);
 		}
 	}
 
@@ -171,25 +932,487 @@ public class ClickSelection<T> extends SetSelection<T> {
 			normalClick(element);
 		}
 	}
+	
+	/**
+	 * Moves the focus (lead) offset positions, as the arrow (1 or -1) and page keys do. See
+	 * {@link #moveLeadTo(int, int)}.
+	 * 
+	 * @param offset
+	 * @param modifiers
+	 */
+	public void moveLead(int offset, int modifiers) {
+		beginGesture();
+		try {
+			long target=(long) leadIndex() + offset;
+			moveLeadTo((int) Math.max(Integer.MIN_VALUE, Math.min(Integer.MAX_VALUE, target)), modifiers);
+		} finally {
+			endGesture();
+		}
+	}
+	
+	/**
+	 * Moves the focus (lead) to a position, as the home (0) and end (size - 1) keys do:
+	 * 		- With no modifiers, only that item is selected, and it becomes the starting point for shift operations
+	 * 		- With shift, the items from the starting point to the lead are selected, and the rest unselected
+	 * 		- With shift and control, the items from the starting point to the lead are added to the selection
+	 * 		- With control, only the focus moves
+	 * 
+	 * The starting point is kept apart from the lead, so moving it again with shift only selects or unselects the
+	 * items between the old and the new lead: holding shift + down costs O(1) per step (O(log n) for
+	 * {@link RangeClickSelection}) and fires only that change, no matter how big the selection is.
+	 * 
+	 * @param index it is brought into the collection if it is out of it
+	 * @param modifiers
+	 */
+	public void moveLeadTo(int index, int modifiers) {
+		beginGesture();
+		try {
+			if(collection.size()==0) {
+				return;
+			}
+			boolean ctrlPressed=((modifiers & InputEvent.CTRL_MASK) > 0);
+			boolean shiftPressed=((modifiers & InputEvent.SHIFT_MASK) > 0);
+			boolean continued=continuesNavigation(0);
+			int target=Math.max(0, Math.min(index, collection.size() - 1));
+			int anchor=continued ? navAnchor : Math.max(0, Math.min(anchorIndex(), collection.size() - 1));
+			if(shiftPressed) {
+				selectShiftRangeInternal(anchor, target, !ctrlPressed);
+			} else if(ctrlPressed) {
+				leadRangeSelected=false;
+			} else {
+				clearSelectionInternal();
+				selectRangeInternal(target, target);
+				setAnchorIndex(target);
+				anchor=target;
+				leadRangeSelected=true;
+			}
+			lead=target;
+			navAnchor=anchor;
+			navigatedAt=gestures;
+		} finally {
+			endGesture();
+		}
+	}
+	
+	/**
+	 * Toggles the item at the lead, as control + space does. It becomes the starting point for shift operations.
+	 */
+	public void toggleLead() {
+		beginGesture();
+		try {
+			int index=leadIndex();
+			if(index<0) {
+				return;
+			}
+			ctrlClickAt(index);
+			setAnchorIndex(index);
+			lead=index;
+			navAnchor=index;
+			leadRangeSelected=false;
+			navigatedAt=gestures;
+		} finally {
+			endGesture();
+		}
+	}
+	
+	/**
+	 * @return the focused position: the last one moved to with the keyboard, or the starting point for shift operations
+	 * 			if something else happened since then. -1 if there is none
+	 */
+	public int leadIndex() {
+		lock.lock();
+		try {
+			int index=continuesNavigation(1) ? lead : anchorIndex();
+			return (index < collection.size()) ? index : -1;
+		} finally {
+			lock.unlock();
+		}
+	}
+	
+	/**
+	 * @param reads holds of the lock by the caller that are not gestures
+	 * @return true if the gestures in progress are the only ones begun since the last keyboard move, so the lead and
+	 * 			starting point it left are still valid
+	 */
+	private boolean continuesNavigation(int reads) {
+		return navigatedAt>=0 && gestures - navigatedAt==lock.getHoldCount() - reads;
+	}
+	
+	/**
+	 * Selects the positions between anchor and end (both inclusive), as shift does, and remembers them as the range of
+	 * the lead. If the previous gesture left that range selected from the same anchor, only the positions between the
+	 * old and the new end are selected or unselected, so dragging the end point costs the size of the change, not of
+	 * the range.
+	 * 
+	 * @param anchor
+	 * @param end
+	 * @param clearSelection true to leave only that range selected
+	 */
+	protected void selectShiftRangeInternal(int anchor, int end, boolean clearSelection) {
+		boolean incremental=continuesNavigation(0) && leadRangeSelected && navAnchor==anchor;
+		if(!clearSelection) {
+			if(incremental) {
+				selectLeadRangeChange(anchor, lead, end);
+			} else {
+				selectRangeInternal(anchor, end);
+			}
+		} else if(incremental && size()==Math.abs(lead - anchor) + 1) {
+			unselectLeadRangeChange(anchor, lead, end);
+			selectLeadRangeChange(anchor, lead, end);
+		} else {
+			clearSelectionInternal();
+			selectRangeInternal(anchor, end);
+		}
+		navAnchor=anchor;
+		lead=end;
+		leadRangeSelected=true;
+		navigatedAt=gestures;
+	}
+	
+	/**
+	 * Selects the positions that are between anchor and target but not between anchor and lead
+	 */
+	private void selectLeadRangeChange(int anchor, int lead, int target) {
+		int oldFrom=Math.min(anchor, lead);
+		int oldTo=Math.max(anchor, lead);
+		int newFrom=Math.min(anchor, target);
+		int newTo=Math.max(anchor, target);
+		if(newFrom < oldFrom) {
+			selectRangeInternal(oldFrom - 1, newFrom);
+		}
+		if(newTo > oldTo) {
+			selectRangeInternal(oldTo + 1, newTo);
+		}
+	}
+	
+	/**
+	 * Unselects the positions that are between anchor and lead but not between anchor and target
+	 */
+	private void unselectLeadRangeChange(int anchor, int lead, int target) {
+		int oldFrom=Math.min(anchor, lead);
+		int oldTo=Math.max(anchor, lead);
+		int newFrom=Math.min(anchor, target);
+		int newTo=Math.max(anchor, target);
+		if(oldFrom < newFrom) {
+			unselectRangeInternal(oldFrom, newFrom - 1);
+		}
+		if(oldTo > newTo) {
+			unselectRangeInternal(newTo + 1, oldTo);
+		}
+	}
+	
+	/**
+	 * Starts dragging over a list view, as a mouse down does. The items between index and the position the pointer is
+	 * dragged to are selected on every {@link DragSelection#flush()}.
+	 * 
+	 * @param index position the drag starts at
+	 * @param modifiers see {@link DragSelection}
+	 * @return the drag, with the item at index already selected
+	 */
+	public DragSelection<T> beginDrag(int index, int modifiers) {
+		return startDrag(new DragSelection<T>(this, index, modifiers));
+	}
+	
+	/**
+	 * Starts a rubber band drag over a 2D view. The items spatialIndex finds inside the rectangle from (x, y) to the
+	 * point the pointer is dragged to are selected on every {@link DragSelection#flush()}.
+	 * 
+	 * @param spatialIndex
+	 * @param x
+	 * @param y
+	 * @param modifiers see {@link DragSelection}
+	 * @return the drag
+	 */
+	public DragSelection<T> beginDrag(DragSelection.SpatialIndex spatialIndex, double x, double y, int modifiers) {
+		return startDrag(new DragSelection<T>(this, spatialIndex, x, y, modifiers));
+	}
+	
+	/**
+	 * Records the gesture in progress in the same undo step as the previous one of group, if nothing else was done in
+	 * between
+	 * 
+	 * @param group i.e. the drag the gesture is a frame of
+	 */
+	void groupHistory(Object group) {
+		if(history!=null && lock.getHoldCount()==1) {
+			history.group(group);
+		}
+	}
+	
+	/**
+	 * Applies the start of a drag as a gesture
+	 */
+	protected DragSelection<T> startDrag(DragSelection<T> drag) {
+		beginGesture();
+		try {
+			drag.start();
+			return drag;
+		} finally {
+			endGesture();
+		}
+	}
+	
+	/**
+	 * Replays recorded clicks, each one as {@link #click(Object, int)} would do it, as a single gesture: the lock is
+	 * taken once, no per item events are fired, and listeners get a single {@link SelectionDeltaEvent} with the net
+	 * change of all of them. It is also a single step for {@link #undo()}.
+	 * 
+	 * @param elements the clicked elements
+	 * @param modifiers the modifiers of every click, in the same order
+	 */
+	public void replay(List<? extends T> elements, int[] modifiers) {
+		checkReplay(elements.size(), modifiers);
+		beginReplay();
+		try {
+			int i=0;
+			for(T element : elements) {
+				click(element, modifiers[i++]);
+			}
+		} finally {
+			endReplay();
+		}
+	}
+	
+	/**
+	 * Same as {@link #replay(List, int[])}, but the caller supplies the positions of the clicked elements, so nothing
+	 * is looked up
+	 * 
+	 * @param indexes
+	 * @param modifiers
+	 */
+	public void replayAt(int[] indexes, int[] modifiers) {
+		checkReplay(indexes.length, modifiers);
+		beginReplay();
+		try {
+			for(int i=0; i<indexes.length; i++) {
+				clickAt(indexes[i], modifiers[i]);
+			}
+		} finally {
+			endReplay();
+		}
+	}
+	
+	private static void checkReplay(int clicks, int[] modifiers) {
+		if(clicks!=modifiers.length) {
+			throw new IllegalArgumentException(clicks + " clicks but " + modifiers.length + " modifiers");
+		}
+	}
+	
+	private void beginReplay() {
+		beginGesture();
+		if(lock.getHoldCount()==1) {
+			replaying=true;
+		}
+	}
+	
+	private void endReplay() {
+		if(lock.getHoldCount()==1) {
+			replaying=false;
+		}
+		endGesture();
+	}
 		
+	/**
+	 * Registers l in an EventBus, so its methods annotated with Subscribe get the events. Use
+	 * {@link #addSelectionListener(SelectionListener)} to be called directly.
+	 * 
+	 * @param l
+	 */
 	public void addListener(Object l) {
-		eventBus.register(l);
+		lock.lock();
+		try {
+			if(eventBus==null) {
+				eventBus=new EventBus();
+				addSelectionListener(new EventBusListener<T>(this, eventBus));
+			}
+			eventBus.register(l);
+		} finally {
+			lock.unlock();
+		}
 	}
 
 	public void removeListener(Object l) {
-		eventBus.unregister(l);
+		EventBus bus=eventBus;
+		if(bus!=null) {
+			bus.unregister(l);
+		}
 	}
+
 	
 	
-	private void fireSelectItem(T item) {
-		eventBus.post(new SelectClickEvent<T>(this, item));
+	/**
+	 * Adds a listener called directly, in the order they were added. Adding and removing copies the listeners, firing
+	 * doesn't.
+	 * 
+	 * @param l
+	 */
+	public void addSelectionListener(SelectionListener<T> l) {
+		lock.lock();
+		try {
+			SelectionListener<T>[] res=Arrays.copyOf(listeners, listeners.length + 1);
+			res[listeners.length]=l;
+			listeners=res;
+		} finally {
+			lock.unlock();
+		}
 	}
 	
-	private void fireUnselectItem(T item) {
-		eventBus.post(new UnselectClickEvent<T>(this, item));
+	public void removeSelectionListener(SelectionListener<T> l) {
+		lock.lock();
+		try {
+			for(int i=0; i<listeners.length; i++) {
+				if(listeners[i]==l) {
+					SelectionListener<T>[] res=Arrays.copyOf(listeners, listeners.length - 1);
+					System.arraycopy(listeners, i + 1, res, i, listeners.length - i - 1);
+					listeners=res;
+					return;
+				}
+			}
+		} finally {
+			lock.unlock();
+		}
+	}
+	
+	@SuppressWarnings({"unchecked", "rawtypes"})
+	private static <T> SelectionListener<T>[] noListeners() {
+		return new SelectionListener[0];
 	}
 	
-	private void fireClearSelection() {
-		eventBus.post(new ClearSelectionEvent<T>(this));
+	protected void fireSelectItem(T item) {
+		SelectionListener<T>[] ls=listenersNow();
+		if(ls==null) {
+			queue(new SelectClickEvent<T>(this, item));
+		} else if(ls.length > 0) {
+			long start=dispatchStart();
+			for(int i=0; i<ls.length; i++) {
+				ls[i].onSelect(item);
+			}
+			dispatchEnd(start);
+		}
+	}
+	
+	protected void fireUnselectItem(T item) {
+		SelectionListener<T>[] ls=listenersNow();
+		if(ls==null) {
+			queue(new UnselectClickEvent<T>(this, item));
+		} else if(ls.length > 0) {
+			long start=dispatchStart();
+			for(int i=0; i<ls.length; i++) {
+				ls[i].onUnselect(item);
+			}
+			dispatchEnd(start);
+		}
+	}
+	
+	protected void fireClearSelection() {
+		SelectionListener<T>[] ls=listenersNow();
+		if(ls==null) {
+			queue(new ClearSelectionEvent<T>(this));
+		} else if(ls.length > 0) {
+			long start=dispatchStart();
+			for(int i=0; i<ls.length; i++) {
+				ls[i].onClear();
+			}
+			dispatchEnd(start);
+		}
+	}
+	
+	protected void fireSelectionDelta(SelectionDelta changes) {
+		SelectionListener<T>[] ls=listenersNow();
+		if(ls==null) {
+			dispatcher.postDelta(changes);
+		} else if(ls.length > 0) {
+			long start=dispatchStart();
+			for(int i=0; i<ls.length; i++) {
+				ls[i].onDelta(changes);
+			}
+			dispatchEnd(start);
+		}
+	}
+	
+	/**
+	 * Counts one more event for the gesture in progress
+	 * 
+	 * @return the listeners to call right away, or null if the event has to be queued for the async dispatcher
+	 */
+	SelectionListener<T>[] listenersNow() {
+		if(measuredBy!=null) {
+			gestureEvents++;
+		}
+		return (dispatcher!=null) ? null : listeners;
+	}
+	
+	void queue(Object event) {
+		dispatcher.post(event);
+	}
+	
+	/**
+	 * @return when the listeners started being called, if there are metrics to tell
+	 */
+	long dispatchStart() {
+		return (metrics!=null) ? System.nanoTime() : 0;
+	}
+	
+	void dispatchEnd(long start) {
+		SelectionMetrics m=metrics;
+		if(m!=null && start!=0) {
+			m.eventDispatched(System.nanoTime() - start);
+		}
+	}
+	
+	/**
+	 * Posts an event to the listeners, synchronously or through the async dispatcher. Events of a type the
+	 * {@link SelectionListener}s don't know about only reach the ones given to {@link #addListener(Object)}.
+	 * 
+	 * @param event
+	 */
+	protected void post(Object event) {
+		if(listenersNow()==null) {
+			queue(event);
+		} else {
+			dispatch(event);
+		}
+	}
+	
+	/**
+	 * Calls the listeners with a queued event, measuring how long they take if there are metrics
+	 */
+	void dispatch(Object event) {
+		SelectionListener<T>[] ls=listeners;
+		if(ls.length==0) {
+			return;
+		}
+		long start=dispatchStart();
+		try {
+			if(event instanceof SelectionDelta) {
+				for(int i=0; i<ls.length; i++) {
+					ls[i].onDelta((SelectionDelta) event);
+				}
+			} else {
+				for(int i=0; i<ls.length; i++) {
+					deliver(ls[i], event);
+				}
+			}
+		} finally {
+			dispatchEnd(start);
+		}
+	}
+	
+	@SuppressWarnings("unchecked")
+	private void deliver(SelectionListener<T> l, Object event) {
+		if(event instanceof SelectClickEvent<?>) {
+			l.onSelect(((SelectClickEvent<T>) event).item);
+		} else if(event instanceof UnselectClickEvent<?>) {
+			l.onUnselect(((UnselectClickEvent<T>) event).item);
+		} else if(event instanceof ClearSelectionEvent<?>) {
+			l.onClear();
+		} else if(event instanceof RangeSelectClickEvent<?>) {
+			RangeSelectClickEvent<?> range=(RangeSelectClickEvent<?>) event;
+			l.onSelectRange(range.fromIndex, range.toIndex);
+		} else if(event instanceof DoubleClickEvent<?>) {
+			l.onDoubleClick(((DoubleClickEvent<T>) event).selected);
+		} else if(l instanceof EventBusListener<?>) {
+			eventBus.post(event);		//it is only added once the EventBus exists
+		}
 	}
 }
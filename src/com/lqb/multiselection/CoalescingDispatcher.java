@@ -0,0 +1,86 @@
+package com.lqb.multiselection;
+
+import java.util.ArrayDeque;
+import java.util.concurrent.Executor;
+
+/**
+ * Delivers the events of a selection to its listeners from an Executor, one at a time and in order.
+ * 
+ * Deltas queued one after the other while the listeners are busy are merged, so a burst of gestures reaches the
+ * listeners as a single {@link SelectionDelta} with the net change. Deltas from both sides of a change of the
+ * collection are not merged, as their positions don't match.
+ * 
+ * @param <T>
+ */
+class CoalescingDispatcher<T> implements Runnable {
+	private final ClickSelection<T> source;
+	private final Executor executor;
+	private final ArrayDeque<Object> pending=new ArrayDeque<Object>();
+	private boolean scheduled=false;
+	private boolean barrier=false;		//the next delta can't be merged with the queued ones
+	
+	CoalescingDispatcher(ClickSelection<T> source, Executor executor) {
+		this.source=source;
+		this.executor=executor;
+	}
+	
+	void post(Object event) {
+		synchronized(pending) {
+			pending.add(event);
+			schedule();
+		}
+	}
+	
+	/**
+	 * @param delta it is owned by the dispatcher from now on
+	 */
+	void postDelta(SelectionDelta delta) {
+		synchronized(pending) {
+			Object last=pending.peekLast();
+			if(last instanceof SelectionDelta && !barrier) {
+				((SelectionDelta) last).append(delta);
+			} else {
+				pending.add(delta);
+			}
+			barrier=false;
+			schedule();
+		}
+	}
+	
+	/**
+	 * Keeps the deltas posted from now on from being merged with the ones already queued, i.e. because positions
+	 * shifted in between
+	 */
+	void barrier() {
+		synchronized(pending) {
+			barrier=true;
+		}
+	}
+	
+	private void schedule() {
+		if(!scheduled) {
+			scheduled=true;
+			try {
+				executor.execute(this);
+			} catch(RuntimeException e) {
+				scheduled=false;
+				throw e;
+			}
+		}
+	}
+	
+	@Override
+	public void run() {
+		while(true) {
+			Object next;
+			synchronized(pending) {
+				next=pending.poll();
+				if(next==null) {
+					scheduled=false;
+					return;
+				}
+			}
+			source.dispatch(next);
+		}
+	}
+}
@@ -2,9 +2,7 @@ package com.lqb.multiselection;
 
 import java.util.Collection;
 import java.util.List;
-import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
-import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.TimeUnit;
 
 import com.lqb.multiselection.events.DoubleClickEvent;
@@ -15,95 +13,197 @@ import com.lqb.multiselection.events.DoubleClickEvent;
  * This differs a bit from how Windows works in the sense that Windows would never open more than one item on double click,
  * but we do support this, by delaying a bit a normal click operation over an element that is already selected
  * 
+ * Delayed clicks are resolved by a {@link ClickScheduler}. By default it is a timer thread shared by all the instances,
+ * which stops by itself when there is nothing to wait for.
+ * 
+ * Clicks are timed with the monotonic clock of the scheduler, unless the caller passes the time of the input event
+ * to {@link #normalClick(Object, long)}. With {@link ClickScheduler#eventTime()} no clock is read at all: only the
+ * given timestamps count, so recorded click streams can be replayed as fast as they are read, with the same result.
+ * 
  * @param <T>
  */
 public class DoubleClickSelection<T> extends ClickSelection<T>{
 	protected static final int TIME_INTERVAL=350;
-	private ScheduledExecutorService executor;
-	private RequestNormalClick lastRequest;
+	private final ClickScheduler scheduler;
+	private final ScheduledExecutorService executor;		//shut down by cleanup, if given
+	private final DelayedClick delayedClick=new DelayedClick();		//reused by every delayed click
+	private volatile long interval=TimeUnit.MILLISECONDS.toNanos(TIME_INTERVAL);
 	private T lastNormalClick;
-	private long lastTimeNormalClick;
+	private long lastTimeNormalClick;		//nanoseconds, in the clock of the timestamps given
 	
 	public DoubleClickSelection(List<T> collection) {
-		this(collection, Executors.newScheduledThreadPool(1));
+		this(collection, ClickScheduler.shared());
+	}
+	
+	public DoubleClickSelection(List<T> collection, ClickScheduler scheduler) {
+		this(collection, new ListIndexResolver<T>(collection), scheduler);
 	}
 	
+	public DoubleClickSelection(List<T> collection, IndexResolver<T> resolver, ClickScheduler scheduler) {
+		super(collection, resolver);
+		this.scheduler=scheduler;
+		this.executor=null;
+	}
+	
+	/**
+	 * @param collection
+	 * @param executor runs the delayed clicks instead of the shared timer. It is shut down by {@link #cleanup()}
+	 */
 	public DoubleClickSelection(List<T> collection, ScheduledExecutorService executor) {
-		super(collection);
+		this(collection, new ListIndexResolver<T>(collection), executor);
+	}
+	
+	/**
+	 * @param collection
+	 * @param resolver
+	 * @param executor runs the delayed clicks, or null to use the shared timer. It is shut down by {@link #cleanup()}
+	 */
+	public DoubleClickSelection(List<T> collection, IndexResolver<T> resolver, ScheduledExecutorService executor) {
+		super(collection, resolver);
+		this.scheduler=(executor==null) ? ClickScheduler.shared() : ClickScheduler.of(executor);
 		this.executor=executor;
 	}
 	
+	/**
+	 * @param interval the maximum time between two normal clicks on the same element to make a double click, and
+	 * 			so the time a normal click on a selected element is delayed. {@value #TIME_INTERVAL} ms by default
+	 * @param unit
+	 */
+	public void setDoubleClickInterval(long interval, TimeUnit unit) {
+		if(interval<=0) {
+			throw new IllegalArgumentException("Interval must be positive: " + interval);
+		}
+		this.interval=unit.toNanos(interval);
+	}
+	
+	public long getDoubleClickInterval(TimeUnit unit) {
+		return unit.convert(interval, TimeUnit.NANOSECONDS);
+	}
+	
 	private boolean makesDoubleClick(final T element, long currentTime) {
-		return (element.equals(lastNormalClick) && (currentTime - lastTimeNormalClick) < TIME_INTERVAL);
+		return (element.equals(lastNormalClick) && (currentTime - lastTimeNormalClick) < interval);
 	}
 	
 	@Override
 	public void normalClick(final T element) {
-		lock.lock();
+		normalClick(element, scheduler.nanoTime());
+	}
+	
+	/**
+	 * Same as {@link #normalClick(Object)}, timed by the caller
+	 * 
+	 * @param element
+	 * @param eventTime when the click happened, in nanoseconds. Any clock will do (System.nanoTime(), the time stamp of
+	 * 			the input event...), as long as every timed call on this selection uses the same one
+	 */
+	public void normalClick(final T element, long eventTime) {
+		super.beginGesture();
 		try {
-			long currentTime=System.currentTimeMillis();
-			if(makesDoubleClick(element, currentTime)) {
+			advanceTo(eventTime);
+			if(makesDoubleClick(element, eventTime)) {
 				//double click
 				cancelRequestWaiting(false);
-				fireDoubleClick(elements());
+				fireDoubleClick(snapshot());
 				return;
 			} else {
 				cancelRequestWaiting(true);
 				if(isSelected(element)) {
 					//we delay it! maybe a second click comes
-					Runnable task=new Runnable() {
-						@Override
-						public void run() {
-							try {
-								if(Thread.interrupted()) {
-									return;
-								} else {
-									DoubleClickSelection.super.normalClick(element);
-								}
-							} finally {
-								lastRequest=null;
-							}
-						}
-					};
-					ScheduledFuture<?> fut=executor.schedule(task, TIME_INTERVAL, TimeUnit.MILLISECONDS);
-					lastRequest=new RequestNormalClick(fut, task);
+					delayedClick.schedule(element, eventTime);
 				} else {
 					super.normalClick(element);
 				}
 				lastNormalClick=element;
-				lastTimeNormalClick=currentTime;
+				lastTimeNormalClick=eventTime;
 			}
 		} finally {
-			lock.unlock();
+			endGesture();
 		}
 	}
 	
+	/**
+	 * Same as {@link #normalClick(Object)}, so two quick clicks at the same position make a double click
+	 */
 	@Override
-	public void shiftClick(T element) {
-		lock.lock();
+	public void normalClickAt(int index) {
+		super.beginGesture();
 		try {
-			cancelRequestWaiting(true);
-			super.shiftClick(element);
+			if(index>=0 && index<collection.size()) {
+				normalClick(collection.get(index));
+			}
 		} finally {
-			lock.unlock();
+			endGesture();
 		}
 	}
 	
+	/**
+	 * Any gesture but a normal click first resolves the delayed click, as a gesture of its own, so it can't undo
+	 * the new one later. It also keeps the clicks before and after it from making a double click.
+	 */
 	@Override
-	public void ctrlClick(T element) {
-		lock.lock();
+	protected void beginGesture() {
+		if(delayedClick.pending && !lock.isHeldByCurrentThread()) {
+			resolveDelayedClick();
+		}
+		super.beginGesture();
+		if(lock.getHoldCount()==1) {
+			lastNormalClick=null;
+		}
+	}
+	
+	/**
+	 * Same as {@link #beginGesture()}, for select, unselect, toggle and clearSelection
+	 */
+	@Override
+	protected void lockForChange() {
+		if(delayedClick.pending && !lock.isHeldByCurrentThread()) {
+			resolveDelayedClick();
+		}
+		super.lockForChange();
+		if(lock.getHoldCount()==1) {
+			lastNormalClick=null;
+		}
+	}
+	
+	private void resolveDelayedClick() {
+		super.beginGesture();
 		try {
-			cancelRequestWaiting(true);
-			super.ctrlClick(element);
+			if(delayedClick.pending) {
+				delayedClick.resolve();
+			}
 		} finally {
-			lock.unlock();
+			endGesture();
 		}
 	}
 	
+	/**
+	 * Resolves the delayed click if it is due at eventTime. Only needed when the scheduler doesn't resolve it, i.e.
+	 * with {@link ClickScheduler#eventTime()} once the last click of a stream has been given.
+	 * 
+	 * @param eventTime in the clock given to {@link #normalClick(Object, long)}
+	 */
+	public void advanceTo(long eventTime) {
+		super.beginGesture();
+		try {
+			if(delayedClick.pending && eventTime - delayedClick.due>=0) {
+				delayedClick.resolve();
+			}
+		} finally {
+			endGesture();
+		}
+	}
+	
+	/**
+	 * Discards the delayed click, if any, and shuts down the ScheduledExecutorService given to the constructor. Not
+	 * needed otherwise.
+	 */
 	public void cleanup() {
 		lock.lock();
 		try {
-			executor.shutdownNow();
+			cancelRequestWaiting(false);
+			if(executor!=null) {
+				executor.shutdownNow();
+			}
 		} finally {
 			lock.unlock();
 		}
@@ -112,27 +212,88 @@ public class DoubleClickSelection<T> extends ClickSelection<T>{
 	private void cancelRequestWaiting(boolean runIfWaiting) {
 		assert(lock.isHeldByCurrentThread());
 		
-		if(lastRequest!=null) {
-			ScheduledFuture<?> fut=lastRequest.fut;
+		if(delayedClick.pending) {
 			if(runIfWaiting) {
-				lastRequest.task.run();
+				delayedClick.resolve();
+			} else {
+				delayedClick.discard();
 			}
-			fut.cancel(true);
-			lastRequest=null;
 		}
 		lastNormalClick=null;
 	}
 	
 	protected void fireDoubleClick(Collection<T> selection) {
-		eventBus.post(new DoubleClickEvent<T>(this, selection));
+		SelectionListener<T>[] ls=listenersNow();
+		if(ls==null) {
+			queue(new DoubleClickEvent<T>(this, selection));
+		} else if(ls.length > 0) {
+			long start=dispatchStart();
+			for(int i=0; i<ls.length; i++) {
+				ls[i].onDoubleClick(selection);
+			}
+			dispatchEnd(start);
+		}
 	}
 	
-	private class RequestNormalClick {
-		private final ScheduledFuture<?> fut;
-		private final Runnable task;
-		public RequestNormalClick(ScheduledFuture<?> fut, Runnable task) {
-			this.fut=fut;
-			this.task=task;
+	/**
+	 * The normal click waiting for a possible second one. There is a single instance per selection, scheduled again for
+	 * every delayed click, so delaying allocates nothing with the shared timer.
+	 * 
+	 * All fields are guarded by the lock of the selection. pending is also read without it, to skip locking when there
+	 * is nothing to resolve.
+	 */
+	private class DelayedClick extends TimerWheel.Timeout {
+		private T element;
+		private volatile boolean pending=false;
+		private long due;		//in the clock of the timestamps given
+		private long scheduledDue;		//in the clock of the scheduler
+		private SelectionMetrics metrics;		//the ones told about this click, if any
+		
+		void schedule(T element, long eventTime) {
+			this.element=element;
+			pending=true;
+			long delay=interval;
+			due=eventTime + delay;
+			scheduledDue=scheduler.nanoTime() + delay;
+			metrics=metrics();
+			if(metrics!=null) {
+				metrics.delayedClickScheduled();
+			}
+			scheduler.schedule(this, delay);
+		}
+		
+		/**
+		 * Called by the scheduler when the time is over
+		 */
+		@Override
+		public void run() {
+			DoubleClickSelection.super.beginGesture();
+			try {
+				if(pending && scheduler.nanoTime() - scheduledDue>=0) {
+					resolve();
+				}
+			} finally {
+				endGesture();
+			}
+		}
+		
+		/**
+		 * Does the normal click now
+		 */
+		void resolve() {
+			T clicked=element;
+			discard();
+			DoubleClickSelection.super.normalClick(clicked);
+		}
+		
+		void discard() {
+			pending=false;
+			element=null;
+			scheduler.cancel(this);
+			if(metrics!=null) {
+				metrics.delayedClickDone();
+				metrics=null;
+			}
 		}
 	}
 }
@@ -0,0 +1,225 @@
+package com.lqb.multiselection;
+
+import java.awt.event.InputEvent;
+
+/**
+ * A drag (rubber band) selection in progress, started with {@link ClickSelection#beginDrag(int, int)} or
+ * {@link ClickSelection#beginDrag(SpatialIndex, double, double, int)}.
+ * 
+ * Pointer moves are only recorded by {@link #dragTo(int)} / {@link #dragTo(double, double)}, with no lock taken and
+ * nothing selected. {@link #flush()}, meant to be called once per frame, applies the last one as a single gesture:
+ * only the positions that entered or left the swept area since the previous frame are selected or unselected, so
+ * listeners get one delta per frame with just that change, whatever the size of the selection. For undo, all the
+ * frames of a drag are a single step.
+ * 
+ * Modifiers work as in {@link ClickSelection#click(Object, int)}:
+ * 		- With no modifiers, the swept items are the only ones selected
+ * 		- With control, the swept items are added to the selection there was when the drag started
+ * 		- With shift, a list drag sweeps from the starting point for shift operations instead of from where it
+ * 		  started, and a rectangle drag adds the swept items as control does. Control can be added to shift, to keep the
+ * 		  previous selection too
+ * 
+ * The selection is expected not to be changed by anything else while dragging.
+ * 
+ * @param <T>
+ */
+public class DragSelection<T> {
+	/**
+	 * Finds the items of a 2D view inside a rectangle
+	 */
+	public interface SpatialIndex {
+		/**
+		 * Adds to into the positions (in the collection of the selection) of the items inside the rectangle
+		 * 
+		 * @param x0 left, never greater than x1
+		 * @param y0 top, never greater than y1
+		 * @param x1 right
+		 * @param y1 bottom
+		 * @param into empty set to fill
+		 */
+		void positionsIn(double x0, double y0, double x1, double y1, IndexRangeSet into);
+	}
+	
+	private final ClickSelection<T> selection;
+	private final SpatialIndex spatialIndex;		//null for a list drag
+	private final int modifiers;
+	private int origin;		//list drags
+	private final double originX;		//rectangle drags
+	private final double originY;
+	
+	private int pendingIndex;		//guarded by this
+	private double pendingX;
+	private double pendingY;
+	private boolean dirty=true;
+	
+	private IndexRangeSet swept=new IndexRangeSet();		//guarded by the lock of the selection, as the rest below
+	private IndexRangeSet kept=null;		//selected when the drag started, if it is kept
+	private boolean ended=false;
+	
+	DragSelection(ClickSelection<T> selection, int index, int modifiers) {
+		this.selection=selection;
+		this.spatialIndex=null;
+		this.modifiers=modifiers;
+		this.origin=index;
+		this.originX=0;
+		this.originY=0;
+		this.pendingIndex=index;
+	}
+	
+	DragSelection(ClickSelection<T> selection, SpatialIndex spatialIndex, double x, double y, int modifiers) {
+		this.selection=selection;
+		this.spatialIndex=spatialIndex;
+		this.modifiers=modifiers;
+		this.origin=-1;
+		this.originX=x;
+		this.originY=y;
+		this.pendingX=x;
+		this.pendingY=y;
+	}
+	
+	/**
+	 * Called by the selection, in a gesture
+	 */
+	void start() {
+		selection.groupHistory(this);
+		boolean ctrlPressed=((modifiers & InputEvent.CTRL_MASK) > 0);
+		boolean shiftPressed=((modifiers & InputEvent.SHIFT_MASK) > 0);
+		int size=selection.collection.size();
+		if(spatialIndex==null) {
+			if(shiftPressed) {
+				origin=Math.max(0, Math.min(selection.anchorIndex(), size - 1));
+			} else {
+				origin=Math.max(0, Math.min(origin, size - 1));
+				selection.setAnchorIndex(origin);
+			}
+		}
+		if(ctrlPressed || (shiftPressed && spatialIndex!=null)) {
+			kept=selection.selectedPositions();
+		} else {
+			selection.clearSelectionInternal();
+		}
+		apply();
+	}
+	
+	/**
+	 * Records a move of a list drag. Nothing is selected until the next {@link #flush()}
+	 * 
+	 * @param index position the pointer is over
+	 */
+	public synchronized void dragTo(int index) {
+		if(spatialIndex!=null) {
+			throw new IllegalStateException("Rectangle drag, use dragTo(x, y)");
+		}
+		pendingIndex=index;
+		dirty=true;
+	}
+	
+	/**
+	 * Records a move of a rectangle drag. Nothing is selected until the next {@link #flush()}
+	 * 
+	 * @param x
+	 * @param y
+	 */
+	public synchronized void dragTo(double x, double y) {
+		if(spatialIndex==null) {
+			throw new IllegalStateException("List drag, use dragTo(index)");
+		}
+		pendingX=x;
+		pendingY=y;
+		dirty=true;
+	}
+	
+	/**
+	 * Applies the last move, if any since the previous flush, as a single gesture
+	 */
+	public void flush() {
+		selection.beginGesture();
+		try {
+			selection.groupHistory(this);
+			if(!ended) {
+				apply();
+			}
+		} finally {
+			selection.endGesture();
+		}
+	}
+	
+	/**
+	 * Applies the last move and ends the drag. Moves after that are ignored
+	 */
+	public void end() {
+		selection.beginGesture();
+		try {
+			selection.groupHistory(this);
+			if(!ended) {
+				apply();
+				ended=true;
+			}
+		} finally {
+			selection.endGesture();
+		}
+	}
+	
+	public boolean isEnded() {
+		selection.lock.lock();
+		try {
+			return ended;
+		} finally {
+			selection.lock.unlock();
+		}
+	}
+	
+	/**
+	 * Selects what entered the swept area and unselects what left it, unless it was kept
+	 */
+	private void apply() {
+		IndexRangeSet next=sweep();
+		if(next==null) {
+			return;
+		}
+		IndexRangeSet left=new IndexRangeSet(swept);
+		left.removeAll(next);
+		if(kept!=null) {
+			left.removeAll(kept);
+		}
+		IndexRangeSet entered=new IndexRangeSet(next);
+		entered.removeAll(swept);
+		for(IndexRangeSet.Range range : left.ranges()) {
+			selection.unselectRangeInternal(range.from, range.to);
+		}
+		for(IndexRangeSet.Range range : entered.ranges()) {
+			selection.selectRangeInternal(range.from, range.to);
+		}
+		swept=next;
+	}
+	
+	/**
+	 * @return the positions swept by the last move, or null if there was no move since the last time
+	 */
+	private IndexRangeSet sweep() {
+		int index;
+		double x;
+		double y;
+		synchronized(this) {
+			if(!dirty) {
+				return null;
+			}
+			dirty=false;
+			index=pendingIndex;
+			x=pendingX;
+			y=pendingY;
+		}
+		IndexRangeSet res=new IndexRangeSet();
+		if(spatialIndex==null) {
+			int size=selection.collection.size();
+			if(size > 0) {
+				res.add(origin, Math.max(0, Math.min(index, size - 1)));
+			}
+		} else {
+			spatialIndex.positionsIn(Math.min(originX, x), Math.min(originY, y), Math.max(originX, x), Math.max(originY, y),
+					res);
+			res.remove(selection.collection.size(), Integer.MAX_VALUE);
+		}
+		return res;
+	}
+}
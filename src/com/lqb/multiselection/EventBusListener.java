@@ -0,0 +1,57 @@
+package com.lqb.multiselection;
+
+import java.util.Collection;
+
+import com.google.common.eventbus.EventBus;
+import com.lqb.multiselection.events.ClearSelectionEvent;
+import com.lqb.multiselection.events.DoubleClickEvent;
+import com.lqb.multiselection.events.RangeSelectClickEvent;
+import com.lqb.multiselection.events.SelectClickEvent;
+import com.lqb.multiselection.events.SelectionDeltaEvent;
+import com.lqb.multiselection.events.UnselectClickEvent;
+
+/**
+ * Turns the calls to a {@link SelectionListener} into the events posted to the EventBus the listeners given to
+ * {@link ClickSelection#addListener(Object)} are registered in
+ * 
+ * @param <T>
+ */
+class EventBusListener<T> implements SelectionListener<T> {
+	private final Object source;
+	private final EventBus eventBus;
+	
+	EventBusListener(Object source, EventBus eventBus) {
+		this.source=source;
+		this.eventBus=eventBus;
+	}
+	
+	@Override
+	public void onSelect(T element) {
+		eventBus.post(new SelectClickEvent<T>(source, element));
+	}
+	
+	@Override
+	public void onUnselect(T element) {
+		eventBus.post(new UnselectClickEvent<T>(source, element));
+	}
+	
+	@Override
+	public void onSelectRange(int fromIndex, int toIndex) {
+		eventBus.post(new RangeSelectClickEvent<T>(source, fromIndex, toIndex));
+	}
+	
+	@Override
+	public void onClear() {
+		eventBus.post(new ClearSelectionEvent<T>(source));
+	}
+	
+	@Override
+	public void onDelta(SelectionDelta delta) {
+		eventBus.post(new SelectionDeltaEvent<T>(source, delta));
+	}
+	
+	@Override
+	public void onDoubleClick(Collection<T> selection) {
+		eventBus.post(new DoubleClickEvent<T>(source, selection));
+	}
+}
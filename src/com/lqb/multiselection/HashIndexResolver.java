@@ -0,0 +1,72 @@
+package com.lqb.multiselection;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.ListIterator;
+import java.util.Map;
+import java.util.RandomAccess;
+
+import com.google.common.base.Objects;
+
+/**
+ * An {@link IndexResolver} backed by a HashMap from element to position, so lookups are O(1).
+ * 
+ * The map is built lazily and kept in sync with the List this way:
+ * 		- On a RandomAccess List, every position found is checked against the List. If it doesn't match, the map is rebuilt.
+ * 		- If an element is not found and the List size changed since the last build, the map is rebuilt.
+ * 
+ * Changes that keep the size can't be detected for elements that are not in the map: after List.set(i, newElement)
+ * lookups of newElement return -1, and on a LinkedList moved elements keep their old positions. Call
+ * {@link #invalidate()} after such changes. {@link ClickSelection#itemsInserted(int, int)},
+ * {@link ClickSelection#itemsRemoved(int, List)} and {@link ClickSelection#itemMoved(int, int)} already do it.
+ * 
+ * @param <T>
+ */
+public class HashIndexResolver<T> implements IndexResolver<T> {
+	private final List<T> collection;
+	private final Map<T, Integer> positions=new HashMap<T, Integer>();
+	private final boolean verify;
+	private int builtForSize=-1;
+	
+	public HashIndexResolver(List<T> collection) {
+		this.collection=collection;
+		this.verify=(collection instanceof RandomAccess);
+	}
+	
+	@Override
+	public int indexOf(T element) {
+		Integer index=positions.get(element);
+		if(index!=null) {
+			if(!verify || (index < collection.size() && Objects.equal(collection.get(index), element))) {
+				return index;
+			}
+		} else if(builtForSize==collection.size()) {
+			return -1;
+		}
+		
+		rebuild();
+		index=positions.get(element);
+		return index==null ? -1 : index;
+	}
+	
+	/**
+	 * Forces the map to be rebuilt on the next lookup
+	 */
+	public void invalidate() {
+		positions.clear();
+		builtForSize=-1;
+	}
+	
+	private void rebuild() {
+		positions.clear();
+		ListIterator<T> li=collection.listIterator();
+		while(li.hasNext()) {
+			int index=li.nextIndex();
+			T element=li.next();
+			if(!positions.containsKey(element)) {
+				positions.put(element, index);
+			}
+		}
+		builtForSize=collection.size();
+	}
+}
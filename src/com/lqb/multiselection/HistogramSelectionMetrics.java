@@ -0,0 +1,174 @@
+package com.lqb.multiselection;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Keeps {@link SelectionMetrics} in memory, as histograms with power of two buckets. Recording is lock free and never
+ * allocates. One instance can be shared by many selections to get the totals.
+ */
+public class HistogramSelectionMetrics implements SelectionMetrics {
+	private final Histogram gestureLatency=new Histogram();
+	private final Histogram lockWait=new Histogram();
+	private final Histogram lockHold=new Histogram();
+	private final Histogram eventsPerGesture=new Histogram();
+	private final Histogram rangeWidth=new Histogram();
+	private final Histogram dispatchTime=new Histogram();
+	private final AtomicInteger pendingDelayedClicks=new AtomicInteger();
+	
+	@Override
+	public void gesture(long latencyNanos, long lockWaitNanos, long lockHoldNanos, int events) {
+		gestureLatency.record(latencyNanos);
+		lockWait.record(lockWaitNanos);
+		lockHold.record(lockHoldNanos);
+		eventsPerGesture.record(events);
+	}
+	
+	@Override
+	public void rangeSelected(int width) {
+		rangeWidth.record(width);
+	}
+	
+	@Override
+	public void eventDispatched(long nanos) {
+		dispatchTime.record(nanos);
+	}
+	
+	@Override
+	public void delayedClickScheduled() {
+		pendingDelayedClicks.incrementAndGet();
+	}
+	
+	@Override
+	public void delayedClickDone() {
+		pendingDelayedClicks.decrementAndGet();
+	}
+	
+	/**
+	 * @return gesture latencies, in nanoseconds
+	 */
+	public Histogram gestureLatency() {
+		return gestureLatency;
+	}
+	
+	/**
+	 * @return time gestures waited for the lock, in nanoseconds
+	 */
+	public Histogram lockWait() {
+		return lockWait;
+	}
+	
+	/**
+	 * @return time gestures held the lock, in nanoseconds
+	 */
+	public Histogram lockHold() {
+		return lockHold;
+	}
+	
+	public Histogram eventsPerGesture() {
+		return eventsPerGesture;
+	}
+	
+	public Histogram rangeWidth() {
+		return rangeWidth;
+	}
+	
+	/**
+	 * @return time listeners took per event, in nanoseconds
+	 */
+	public Histogram dispatchTime() {
+		return dispatchTime;
+	}
+	
+	/**
+	 * @return normal clicks waiting for a possible double click right now
+	 */
+	public int pendingDelayedClicks() {
+		return pendingDelayedClicks.get();
+	}
+	
+	@Override
+	public String toString() {
+		return "gestureLatency=" + gestureLatency + ", lockWait=" + lockWait + ", lockHold=" + lockHold
+				+ ", eventsPerGesture=" + eventsPerGesture + ", rangeWidth=" + rangeWidth + ", dispatchTime="
+				+ dispatchTime + ", pendingDelayedClicks=" + pendingDelayedClicks();
+	}
+	
+	/**
+	 * Counts non negative values in 64 buckets: bucket 0 holds 0, bucket i holds values from 2^(i-1) to 2^i - 1.
+	 * Percentiles are the upper bound of the bucket they fall in, so they are off by less than 2x.
+	 */
+	public static final class Histogram {
+		private final AtomicLongArray buckets=new AtomicLongArray(64);
+		private final AtomicLong count=new AtomicLong();
+		private final AtomicLong sum=new AtomicLong();
+		private final AtomicLong max=new AtomicLong();
+		
+		public void record(long value) {
+			if(value < 0) {
+				value=0;
+			}
+			buckets.incrementAndGet(64 - Long.numberOfLeadingZeros(value));
+			count.incrementAndGet();
+			sum.addAndGet(value);
+			long current=max.get();
+			while(value > current && !max.compareAndSet(current, value)) {
+				current=max.get();
+			}
+		}
+		
+		public long count() {
+			return count.get();
+		}
+		
+		public long sum() {
+			return sum.get();
+		}
+		
+		public long max() {
+			return max.get();
+		}
+		
+		public double mean() {
+			long n=count.get();
+			return n==0 ? 0 : (double) sum.get() / n;
+		}
+		
+		/**
+		 * @param percentile between 0 and 100
+		 * @return the upper bound of the bucket holding that percentile, but never more than {@link #max()}
+		 */
+		public long percentile(double percentile) {
+			long n=count.get();
+			if(n==0) {
+				return 0;
+			}
+			long rank=(long) Math.ceil(n * percentile / 100);
+			long seen=0;
+			for(int i=0; i<64; i++) {
+				seen+=buckets.get(i);
+				if(seen>=rank && seen > 0) {
+					long upper=(1L << i) - 1;
+					return Math.min(upper, max.get());
+				}
+			}
+			return max.get();
+		}
+		
+		public void reset() {
+			for(int i=0; i<64; i++) {
+				buckets.set(i, 0);
+			}
+			count.set(0);
+			sum.set(0);
+			max.set(0);
+		}
+		
+		@Override
+		public String toString() {
+			return "{count=" + count() + ", mean=" + Math.round(mean()) + ", p50=" + percentile(50) + ", p99="
+					+ percentile(99) + ", max=" + max() + "}";
+		}
+	}
+}
@@ -0,0 +1,469 @@
+package com.lqb.multiselection;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * A set of positions (non negative ints) stored as sorted, disjoint and non adjacent closed intervals.
+ *
+ * Adding or removing a range costs O(log n) plus the number of intervals it absorbs, no matter how wide the range is.
+ *
+ * This class is not thread safe, the selections using it are expected to hold their own lock.
+ */
+public class IndexRangeSet {
+	private final TreeMap<Integer, Integer> ranges=new TreeMap<Integer, Integer>();		//from -> to, both inclusive
+	private int size=0;
+	private int modCount=0;		//bumped by every change, see modCount()
+
+	public IndexRangeSet() {
+	}
+
+	public IndexRangeSet(IndexRangeSet other) {
+		ranges.putAll(other.ranges);
+		size=other.size;
+	}
+
+	public boolean contains(int index) {
+		Map.Entry<Integer, Integer> range=ranges.floorEntry(index);
+		return range!=null && range.getValue()>=index;
+	}
+
+	/**
+	 * @param from
+	 * @param to
+	 * @return true if every position between from and to (both inclusive, in any order) is in the set
+	 */
+	public boolean containsAll(int from, int to) {
+		Map.Entry<Integer, Integer> range=ranges.floorEntry(Math.min(from, to));
+		return range!=null && range.getValue()>=Math.max(from, to);
+	}
+
+	/**
+	 * Adds all the positions between from and to, both inclusive. They can be given in any order.
+	 *
+	 * @param from
+	 * @param to
+	 * @return how many positions were not in the set before
+	 */
+	public int add(int from, int to) {
+		if(from > to) {
+			int tmp=from;
+			from=to;
+			to=tmp;
+		}
+		checkIndex(from);
+		modCount++;
+
+		int start=from;
+		int end=to;
+		int absorbed=0;
+
+		Map.Entry<Integer, Integer> lower=ranges.floorEntry(from);
+		if(lower!=null && (long) lower.getValue() + 1 >= from) {
+			if(lower.getValue()>=to) {
+				return 0;
+			}
+			start=lower.getKey();
+			absorbed+=lower.getValue() - lower.getKey() + 1;
+			ranges.remove(lower.getKey());
+		}
+
+		Map.Entry<Integer, Integer> next=ranges.ceilingEntry(from);
+		while(next!=null && next.getKey() <= (long) end + 1) {
+			end=Math.max(end, next.getValue());
+			absorbed+=next.getValue() - next.getKey() + 1;
+			ranges.remove(next.getKey());
+			next=ranges.ceilingEntry(next.getKey());
+		}
+
+		ranges.put(start, end);
+		int added=(end - start + 1) - absorbed;
+		size+=added;
+		return added;
+	}
+
+	/**
+	 * Removes all the positions between from and to, both inclusive. They can be given in any order.
+	 *
+	 * @param from
+	 * @param to
+	 * @return how many positions were in the set and have been removed
+	 */
+	public int remove(int from, int to) {
+		if(from > to) {
+			int tmp=from;
+			from=to;
+			to=tmp;
+		}
+
+		modCount++;
+		int removed=0;
+		Map.Entry<Integer, Integer> range=ranges.floorEntry(to);
+		while(range!=null && range.getValue()>=from) {
+			int start=range.getKey();
+			int end=range.getValue();
+			ranges.remove(start);
+			if(start < from) {
+				ranges.put(start, from - 1);
+			}
+			if(end > to) {
+				ranges.put(to + 1, end);
+			}
+			removed+=Math.min(end, to) - Math.max(start, from) + 1;
+			range=ranges.lowerEntry(start);
+		}
+		size-=removed;
+		return removed;
+	}
+
+	/**
+	 * Removes the positions between from and to (both inclusive) that are in the set, and adds the ones that are not.
+	 * Costs O(log n) per interval in between.
+	 *
+	 * @param from
+	 * @param to
+	 */
+	public void flip(int from, int to) {
+		if(from > to) {
+			int tmp=from;
+			from=to;
+			to=tmp;
+		}
+		checkIndex(from);
+
+		List<Range> gaps=gaps(from, to);
+		remove(from, to);
+		for(Range gap : gaps) {
+			add(gap.from, gap.to);
+		}
+	}
+
+	/**
+	 * Adds all the positions of other, merging both interval lists in a single pass
+	 *
+	 * @param other
+	 * @return how many positions were not in the set before
+	 */
+	public int addAll(IndexRangeSet other) {
+		List<Range> mine=ranges();
+		List<Range> theirs=other.ranges();
+		List<Range> res=new ArrayList<Range>(mine.size() + theirs.size());
+		int i=0;
+		int j=0;
+		while(i<mine.size() || j<theirs.size()) {
+			Range next;
+			if(j==theirs.size() || (i<mine.size() && mine.get(i).from<=theirs.get(j).from)) {
+				next=mine.get(i++);
+			} else {
+				next=theirs.get(j++);
+			}
+			Range last=res.isEmpty() ? null : res.get(res.size() - 1);
+			if(last!=null && (long) last.to + 1 >= next.from) {
+				if(next.to > last.to) {
+					res.set(res.size() - 1, new Range(last.from, next.to));
+				}
+			} else {
+				res.add(next);
+			}
+		}
+		int before=size;
+		replace(res);
+		return size - before;
+	}
+
+	/**
+	 * Keeps only the positions that are in other too, merging both interval lists in a single pass
+	 *
+	 * @param other
+	 * @return how many positions have been removed
+	 */
+	public int retainAll(IndexRangeSet other) {
+		List<Range> mine=ranges();
+		List<Range> theirs=other.ranges();
+		List<Range> res=new ArrayList<Range>();
+		int i=0;
+		int j=0;
+		while(i<mine.size() && j<theirs.size()) {
+			Range a=mine.get(i);
+			Range b=theirs.get(j);
+			int from=Math.max(a.from, b.from);
+			int to=Math.min(a.to, b.to);
+			if(from<=to) {
+				res.add(new Range(from, to));
+			}
+			if(a.to < b.to) {
+				i++;
+			} else {
+				j++;
+			}
+		}
+		int before=size;
+		replace(res);
+		return before - size;
+	}
+
+	/**
+	 * Removes all the positions of other, merging both interval lists in a single pass
+	 *
+	 * @param other
+	 * @return how many positions have been removed
+	 */
+	public int removeAll(IndexRangeSet other) {
+		List<Range> mine=ranges();
+		List<Range> theirs=other.ranges();
+		List<Range> res=new ArrayList<Range>();
+		int j=0;
+		for(Range a : mine) {
+			int from=a.from;
+			while(j<theirs.size() && theirs.get(j).to < from) {
+				j++;
+			}
+			for(int k=j; k<theirs.size() && theirs.get(k).from<=a.to; k++) {
+				Range b=theirs.get(k);
+				if(b.from > from) {
+					res.add(new Range(from, b.from - 1));
+				}
+				from=(b.to==Integer.MAX_VALUE) ? Integer.MAX_VALUE : b.to + 1;
+				if(b.to>=a.to) {
+					from=-1;
+					break;
+				}
+			}
+			if(from>=0 && from<=a.to) {
+				res.add(new Range(from, a.to));
+			}
+		}
+		int before=size;
+		replace(res);
+		return before - size;
+	}
+
+	/**
+	 * @param sorted disjoint and non adjacent intervals, in order
+	 */
+	private void replace(List<Range> sorted) {
+		modCount++;
+		ranges.clear();
+		size=0;
+		for(Range range : sorted) {
+			ranges.put(range.from, range.to);
+			size+=range.size();
+		}
+	}
+
+	/**
+	 * @param from
+	 * @param to
+	 * @return a copy of the intervals between from and to (both inclusive), cut to fit in them
+	 */
+	public List<Range> ranges(int from, int to) {
+		List<Range> res=new ArrayList<Range>();
+		Map.Entry<Integer, Integer> first=ranges.floorEntry(from);
+		Integer start=(first!=null && first.getValue()>=from) ? first.getKey() : Integer.valueOf(from);
+		for(Map.Entry<Integer, Integer> range : ranges.subMap(start, true, to, true).entrySet()) {
+			res.add(new Range(Math.max(from, range.getKey()), Math.min(to, range.getValue())));
+		}
+		return res;
+	}
+
+	/**
+	 * @param from
+	 * @param to
+	 * @return the intervals between from and to (both inclusive, in any order) of positions that are not in the set
+	 */
+	public List<Range> gaps(int from, int to) {
+		if(from > to) {
+			int tmp=from;
+			from=to;
+			to=tmp;
+		}
+		List<Range> gaps=new ArrayList<Range>();
+		int next=from;
+		for(Range range : ranges(from, to)) {
+			if(range.from > next) {
+				gaps.add(new Range(next, range.from - 1));
+			}
+			next=range.to + 1;
+		}
+		if(next<=to) {
+			gaps.add(new Range(next, to));
+		}
+		return gaps;
+	}
+
+	/**
+	 * Makes room for count new positions at index: positions at or after it move count positions up. The new positions
+	 * are not in the set. Costs O(log n) per interval after index.
+	 *
+	 * @param index
+	 * @param count
+	 */
+	public void insert(int index, int count) {
+		checkIndex(index);
+		if(count<=0) {
+			return;
+		}
+		Map.Entry<Integer, Integer> spanning=ranges.lowerEntry(index);
+		shiftTail(index, count);
+		if(spanning!=null && spanning.getValue()>=index) {
+			ranges.put(spanning.getKey(), index - 1);
+			ranges.put(index + count, spanning.getValue() + count);
+		}
+	}
+
+	/**
+	 * Deletes count positions starting at index: the ones in the set are removed, and positions after them move count
+	 * positions down. Costs O(log n) per interval after index.
+	 *
+	 * @param index
+	 * @param count
+	 * @return how many of the deleted positions were in the set
+	 */
+	public int delete(int index, int count) {
+		checkIndex(index);
+		if(count<=0) {
+			return 0;
+		}
+		int removed=remove(index, index + count - 1);
+		shiftTail(index + count, -count);
+		Map.Entry<Integer, Integer> before=ranges.lowerEntry(index);
+		Integer after=ranges.get(index);
+		if(before!=null && after!=null && before.getValue()==index - 1) {
+			ranges.remove(index);
+			ranges.put(before.getKey(), after);
+		}
+		return removed;
+	}
+
+	/**
+	 * Moves every interval starting at or after index by offset
+	 */
+	private void shiftTail(int index, int offset) {
+		modCount++;
+		Map<Integer, Integer> tail=ranges.tailMap(index, true);
+		List<Range> moved=new ArrayList<Range>(tail.size());
+		for(Map.Entry<Integer, Integer> range : tail.entrySet()) {
+			moved.add(new Range(range.getKey(), range.getValue()));
+		}
+		tail.clear();
+		for(Range range : moved) {
+			ranges.put(range.from + offset, range.to + offset);
+		}
+	}
+
+	/**
+	 * @param fromIndex
+	 * @return the first position in the set that is equal or greater than fromIndex, or -1 if there is none
+	 */
+	public int nextSetIndex(int fromIndex) {
+		Map.Entry<Integer, Integer> range=ranges.floorEntry(fromIndex);
+		if(range!=null && range.getValue()>=fromIndex) {
+			return fromIndex;
+		}
+		range=ranges.higherEntry(fromIndex);
+		return range==null ? -1 : range.getKey();
+	}
+
+	public void clear() {
+		modCount++;
+		ranges.clear();
+		size=0;
+	}
+
+	/**
+	 * @return the number of positions in the set
+	 */
+	public int size() {
+		return size;
+	}
+
+	public boolean isEmpty() {
+		return size==0;
+	}
+
+	/**
+	 * @return a counter that changes every time the set may have changed, to find out cheaply whether a copy of it is
+	 * 			still up to date
+	 */
+	int modCount() {
+		return modCount;
+	}
+
+	/**
+	 * @return the number of intervals the positions are kept in
+	 */
+	public int rangeCount() {
+		return ranges.size();
+	}
+
+	/**
+	 * @return a copy of the intervals, sorted
+	 */
+	public List<Range> ranges() {
+		List<Range> res=new ArrayList<Range>(ranges.size());
+		for(Map.Entry<Integer, Integer> range : ranges.entrySet()) {
+			res.add(new Range(range.getKey(), range.getValue()));
+		}
+		return res;
+	}
+
+	private static void checkIndex(int index) {
+		if(index < 0) {
+			throw new IndexOutOfBoundsException("Negative position: " + index);
+		}
+	}
+
+	@Override
+	public boolean equals(Object obj) {
+		if(this==obj) {
+			return true;
+		} else if(obj instanceof IndexRangeSet) {
+			return ranges.equals(((IndexRangeSet) obj).ranges);
+		}
+		return false;
+	}
+
+	@Override
+	public int hashCode() {
+		return ranges.hashCode();
+	}
+
+	@Override
+	public String toString() {
+		StringBuilder sb=new StringBuilder("[");
+		for(Map.Entry<Integer, Integer> range : ranges.entrySet()) {
+			if(sb.length()>1) {
+				sb.append(", ");
+			}
+			sb.append(range.getKey());
+			if(!range.getKey().equals(range.getValue())) {
+				sb.append('-').append(range.getValue());
+			}
+		}
+		return sb.append(']').toString();
+	}
+
+	/**
+	 * A closed interval of positions
+	 */
+	public static final class Range {
+		public final int from;
+		public final int to;
+
+		public Range(int from, int to) {
+			this.from=from;
+			this.to=to;
+		}
+
+		public int size() {
+			return to - from + 1;
+		}
+
+		@Override
+		public String toString() {
+			return from + "-" + to;
+		}
+	}
+}
@@ -0,0 +1,17 @@
+package com.lqb.multiselection;
+
+/**
+ * Resolves the position of an element in the collection a {@link ClickSelection} selects from.
+ * 
+ * Selections call it with their lock held, so implementations don't need to be thread safe on their own unless
+ * they are shared between several selections.
+ * 
+ * @param <T>
+ */
+public interface IndexResolver<T> {
+	/**
+	 * @param element
+	 * @return the position of the first occurrence of element in the collection, or -1 if it is not there
+	 */
+	int indexOf(T element);
+}
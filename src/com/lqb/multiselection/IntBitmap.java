@@ -0,0 +1,975 @@
+package com.lqb.multiselection;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+/**
+ * A compressed set of non negative ints, in the spirit of Roaring bitmaps.
+ *
+ * Values are split in chunks of 65536 by their high 16 bits. Every chunk is kept in the smallest of three containers:
+ * 		- array: 	sorted low 16 bits, for sparse chunks (up to 4096 values)
+ * 		- bitmap: 	65536 bits, for dense chunks
+ * 		- run: 		sorted intervals, for chunks made of a few long ranges. A full chunk is a single run
+ *
+ * So selecting a range of 10M values costs a few kilobytes, not one object per value. Range operations pick the best
+ * container for the chunks they touch, single value operations only convert when an array gets too big or a bitmap too
+ * small, use {@link #runOptimize()} after many of them.
+ *
+ * This class is not thread safe, the selections using it are expected to hold their own lock.
+ */
+public class IntBitmap {
+	private static final int CHUNK_SIZE=1 << 16;
+	private static final int MAX_ARRAY=4096;
+	private static final int BITMAP_BYTES=CHUNK_SIZE / 8;
+
+	private int[] keys=new int[4];
+	private Container[] containers=new Container[4];
+	private int count=0;				//number of chunks in use
+	private long cardinality=0;
+
+	public IntBitmap() {
+	}
+
+	public IntBitmap(IntBitmap other) {
+		keys=Arrays.copyOf(other.keys, Math.max(4, other.count));
+		containers=new Container[keys.length];
+		for(int i=0; i<other.count; i++) {
+			containers[i]=other.containers[i].copy();
+		}
+		count=other.count;
+		cardinality=other.cardinality;
+	}
+
+	public boolean contains(int value) {
+		if(value < 0) {
+			return false;
+		}
+		int pos=indexOfKey(value >>> 16);
+		return pos>=0 && containers[pos].contains(value & 0xFFFF);
+	}
+
+	/**
+	 * @param value
+	 * @return true if it was not in the set before
+	 */
+	public boolean add(int value) {
+		checkValue(value);
+		int key=value >>> 16;
+		int low=value & 0xFFFF;
+		int pos=indexOfKey(key);
+		if(pos < 0) {
+			pos=insertChunk(-pos - 1, key, new ArrayContainer());
+		} else if(containers[pos].contains(low)) {
+			return false;
+		}
+		containers[pos]=containers[pos].add(low);
+		cardinality++;
+		return true;
+	}
+
+	/**
+	 * @param value
+	 * @return true if it was in the set and has been removed
+	 */
+	public boolean remove(int value) {
+		if(value < 0) {
+			return false;
+		}
+		int pos=indexOfKey(value >>> 16);
+		int low=value & 0xFFFF;
+		if(pos < 0 || !containers[pos].contains(low)) {
+			return false;
+		}
+		containers[pos]=containers[pos].remove(low);
+		cardinality--;
+		if(containers[pos].cardinality()==0) {
+			removeChunk(pos);
+		}
+		return true;
+	}
+
+	/**
+	 * Adds all the values between from and to, both inclusive. They can be given in any order.
+	 *
+	 * @param from
+	 * @param to
+	 * @return how many values were not in the set before
+	 */
+	public long addRange(int from, int to) {
+		if(from > to) {
+			int tmp=from;
+			from=to;
+			to=tmp;
+		}
+		checkValue(from);
+		long added=0;
+		int lastKey=to >>> 16;
+		for(int key=from >>> 16; key<=lastKey; key++) {
+			int lo=(key==from >>> 16) ? from & 0xFFFF : 0;
+			int hi=(key==lastKey) ? to & 0xFFFF : 0xFFFF;
+			int pos=indexOfKey(key);
+			if(pos < 0) {
+				RunContainer run=new RunContainer();
+				run.appendRange(lo, hi);
+				insertChunk(-pos - 1, key, optimize(run));
+				added+=hi - lo + 1;
+			} else {
+				int before=containers[pos].cardinality();
+				containers[pos]=optimize(containers[pos].addRange(lo, hi));
+				added+=containers[pos].cardinality() - before;
+			}
+		}
+		cardinality+=added;
+		return added;
+	}
+
+	/**
+	 * Removes all the values between from and to, both inclusive. They can be given in any order.
+	 *
+	 * @param from
+	 * @param to
+	 * @return how many values were in the set and have been removed
+	 */
+	public long removeRange(int from, int to) {
+		if(from > to) {
+			int tmp=from;
+			from=to;
+			to=tmp;
+		}
+		if(to < 0) {
+			return 0;
+		}
+		from=Math.max(from, 0);
+		long removed=0;
+		int lastKey=to >>> 16;
+		for(int key=from >>> 16; key<=lastKey; key++) {
+			int pos=indexOfKey(key);
+			if(pos < 0) {
+				continue;
+			}
+			int lo=(key==from >>> 16) ? from & 0xFFFF : 0;
+			int hi=(key==lastKey) ? to & 0xFFFF : 0xFFFF;
+			int before=containers[pos].cardinality();
+			containers[pos]=optimize(containers[pos].removeRange(lo, hi));
+			removed+=before - containers[pos].cardinality();
+			if(containers[pos].cardinality()==0) {
+				removeChunk(pos);
+			}
+		}
+		cardinality-=removed;
+		return removed;
+	}
+
+	/**
+	 * Adds all the values of other. Chunks are combined a 64 bit word at a time when either of them is a bitmap, and
+	 * run by run otherwise.
+	 *
+	 * @param other
+	 * @return how many values were not in the set before
+	 */
+	public long or(IntBitmap other) {
+		if(other==this) {
+			return 0;
+		}
+		long before=cardinality;
+		for(int i=0; i<other.count; i++) {
+			int pos=indexOfKey(other.keys[i]);
+			if(pos < 0) {
+				Container copy=other.containers[i].copy();
+				insertChunk(-pos - 1, other.keys[i], copy);
+				cardinality+=copy.cardinality();
+			} else {
+				cardinality-=containers[pos].cardinality();
+				containers[pos]=optimize(or(containers[pos], other.containers[i]));
+				cardinality+=containers[pos].cardinality();
+			}
+		}
+		return cardinality - before;
+	}
+
+	/**
+	 * Keeps only the values that are in other too
+	 *
+	 * @param other
+	 * @return how many values have been removed
+	 */
+	public long and(IntBitmap other) {
+		if(other==this) {
+			return 0;
+		}
+		long before=cardinality;
+		for(int pos=count - 1; pos>=0; pos--) {
+			int i=other.indexOfKey(keys[pos]);
+			cardinality-=containers[pos].cardinality();
+			if(i < 0) {
+				removeChunk(pos);
+			} else {
+				Container res=and(containers[pos], other.containers[i]);
+				if(res.cardinality()==0) {
+					removeChunk(pos);
+				} else {
+					containers[pos]=optimize(res);
+					cardinality+=res.cardinality();
+				}
+			}
+		}
+		return before - cardinality;
+	}
+
+	/**
+	 * Removes all the values of other
+	 *
+	 * @param other
+	 * @return how many values have been removed
+	 */
+	public long andNot(IntBitmap other) {
+		long before=cardinality;
+		if(other==this) {
+			clear();
+			return before;
+		}
+		for(int i=0; i<other.count; i++) {
+			int pos=indexOfKey(other.keys[i]);
+			if(pos>=0) {
+				cardinality-=containers[pos].cardinality();
+				Container res=andNot(containers[pos], other.containers[i]);
+				if(res.cardinality()==0) {
+					removeChunk(pos);
+				} else {
+					containers[pos]=optimize(res);
+					cardinality+=res.cardinality();
+				}
+			}
+		}
+		return before - cardinality;
+	}
+
+	/**
+	 * @param fromValue
+	 * @return the first value in the set that is equal or greater than fromValue, or -1 if there is none
+	 */
+	public int nextSetBit(int fromValue) {
+		if(fromValue < 0) {
+			fromValue=0;
+		}
+		int key=fromValue >>> 16;
+		int pos=indexOfKey(key);
+		int low=fromValue & 0xFFFF;
+		if(pos < 0) {
+			pos=-pos - 1;
+			low=0;
+		}
+		for(; pos<count; pos++) {
+			int next=containers[pos].next(keys[pos]==key ? low : 0);
+			if(next>=0) {
+				return (keys[pos] << 16) | next;
+			}
+		}
+		return -1;
+	}
+
+	public void clear() {
+		Arrays.fill(containers, 0, count, null);
+		count=0;
+		cardinality=0;
+	}
+
+	public long cardinality() {
+		return cardinality;
+	}
+
+	public boolean isEmpty() {
+		return cardinality==0;
+	}
+
+	/**
+	 * Moves every chunk to the container that takes less memory for it
+	 */
+	public void runOptimize() {
+		for(int i=0; i<count; i++) {
+			containers[i]=optimize(containers[i]);
+		}
+	}
+
+	/**
+	 * @return an estimation of the memory used by the values, in bytes
+	 */
+	public long sizeInBytes() {
+		long res=keys.length * 4L + containers.length * 4L;
+		for(int i=0; i<count; i++) {
+			res+=containers[i].sizeInBytes();
+		}
+		return res;
+	}
+
+	/**
+	 * @return the values as ranges, in ascending order. Goes run by run through the containers, so it costs the
+	 * 			number of runs, not of values
+	 */
+	List<IndexRangeSet.Range> runs() {
+		List<IndexRangeSet.Range> res=new ArrayList<IndexRangeSet.Range>();
+		for(int pos=0; pos<count; pos++) {
+			Container container=containers[pos];
+			int base=keys[pos] << 16;
+			for(int start=container.next(0); start>=0; ) {
+				int end=container.nextAbsent(start) - 1;
+				int last=res.size() - 1;
+				if(start==0 && last>=0 && res.get(last).to==base - 1) {		//continues from the previous chunk
+					res.set(last, new IndexRangeSet.Range(res.get(last).from, base | end));
+				} else {
+					res.add(new IndexRangeSet.Range(base | start, base | end));
+				}
+				start=(end==0xFFFF) ? -1 : container.next(end + 1);
+			}
+		}
+		return res;
+	}
+
+	/**
+	 * @return an iterator over the values, in ascending order
+	 */
+	public IntIterator iterator() {
+		return new IntIterator() {
+			private int next=nextSetBit(0);
+
+			@Override
+			public boolean hasNext() {
+				return next>=0;
+			}
+
+			@Override
+			public int next() {
+				if(next < 0) {
+					throw new NoSuchElementException();
+				}
+				int res=next;
+				next=(res==Integer.MAX_VALUE) ? -1 : nextSetBit(res + 1);
+				return res;
+			}
+		};
+	}
+
+	@Override
+	public boolean equals(Object obj) {
+		if(this==obj) {
+			return true;
+		} else if(obj instanceof IntBitmap) {
+			IntBitmap other=(IntBitmap) obj;
+			if(other.cardinality!=cardinality) {
+				return false;
+			}
+			IntIterator mine=iterator();
+			IntIterator theirs=other.iterator();
+			while(mine.hasNext()) {
+				if(mine.next()!=theirs.next()) {
+					return false;
+				}
+			}
+			return true;
+		}
+		return false;
+	}
+
+	@Override
+	public int hashCode() {
+		int res=(int) cardinality;
+		for(int i=0; i<count; i++) {
+			res=31 * res + keys[i];
+		}
+		return res;
+	}
+
+	private static void checkValue(int value) {
+		if(value < 0) {
+			throw new IllegalArgumentException("Negative value: " + value);
+		}
+	}
+
+	private int indexOfKey(int key) {
+		return Arrays.binarySearch(keys, 0, count, key);
+	}
+
+	private int insertChunk(int pos, int key, Container container) {
+		if(count==keys.length) {
+			keys=Arrays.copyOf(keys, count * 2);
+			containers=Arrays.copyOf(containers, count * 2);
+		}
+		System.arraycopy(keys, pos, keys, pos + 1, count - pos);
+		System.arraycopy(containers, pos, containers, pos + 1, count - pos);
+		keys[pos]=key;
+		containers[pos]=container;
+		count++;
+		return pos;
+	}
+
+	private void removeChunk(int pos) {
+		System.arraycopy(keys, pos + 1, keys, pos, count - pos - 1);
+		System.arraycopy(containers, pos + 1, containers, pos, count - pos - 1);
+		count--;
+		containers[count]=null;
+	}
+
+	/**
+	 * @param container
+	 * @return the same values in the container that takes less memory
+	 */
+	private static Container optimize(Container container) {
+		int card=container.cardinality();
+		int runs=container.numberOfRuns();
+		int arrayBytes=(card<=MAX_ARRAY) ? card * 2 : Integer.MAX_VALUE;
+		int runBytes=runs * 4;
+
+		Container target;
+		if(runBytes<=arrayBytes && runBytes<=BITMAP_BYTES) {
+			if(container instanceof RunContainer) {
+				return container;
+			}
+			target=new RunContainer();
+		} else if(arrayBytes<=BITMAP_BYTES) {
+			if(container instanceof ArrayContainer) {
+				return container;
+			}
+			target=new ArrayContainer();
+		} else {
+			if(container instanceof BitmapContainer) {
+				return container;
+			}
+			target=new BitmapContainer();
+		}
+		return convert(container, target);
+	}
+
+	/**
+	 * The operations below may change and return "mine", "theirs" is never changed
+	 */
+	private static Container or(Container mine, Container theirs) {
+		if(theirs instanceof BitmapContainer) {
+			BitmapContainer res=toBitmap(mine);
+			long[] words=((BitmapContainer) theirs).words;
+			for(int w=0; w<words.length; w++) {
+				res.words[w]|=words[w];
+			}
+			res.recount();
+			return res;
+		}
+		for(int start=theirs.next(0); start>=0; ) {
+			int end=theirs.nextAbsent(start) - 1;
+			mine=mine.addRange(start, end);
+			start=(end==0xFFFF) ? -1 : theirs.next(end + 1);
+		}
+		return mine;
+	}
+
+	private static Container and(Container mine, Container theirs) {
+		if(theirs instanceof BitmapContainer) {
+			BitmapContainer res=toBitmap(mine);
+			long[] words=((BitmapContainer) theirs).words;
+			for(int w=0; w<words.length; w++) {
+				res.words[w]&=words[w];
+			}
+			res.recount();
+			return res;
+		}
+		//removes the gaps between the values of theirs
+		for(int start=theirs.nextAbsent(0); start<CHUNK_SIZE; ) {
+			int next=theirs.next(start);
+			int end=(next < 0) ? 0xFFFF : next - 1;
+			mine=mine.removeRange(start, end);
+			start=(next < 0) ? CHUNK_SIZE : theirs.nextAbsent(next);
+		}
+		return mine;
+	}
+
+	private static Container andNot(Container mine, Container theirs) {
+		if(theirs instanceof BitmapContainer) {
+			BitmapContainer res=toBitmap(mine);
+			long[] words=((BitmapContainer) theirs).words;
+			for(int w=0; w<words.length; w++) {
+				res.words[w]&=~words[w];
+			}
+			res.recount();
+			return res;
+		}
+		for(int start=theirs.next(0); start>=0; ) {
+			int end=theirs.nextAbsent(start) - 1;
+			mine=mine.removeRange(start, end);
+			start=(end==0xFFFF) ? -1 : theirs.next(end + 1);
+		}
+		return mine;
+	}
+
+	private static BitmapContainer toBitmap(Container container) {
+		if(container instanceof BitmapContainer) {
+			return (BitmapContainer) container;
+		}
+		return (BitmapContainer) convert(container, new BitmapContainer());
+	}
+
+	private static Container convert(Container from, Container to) {
+		for(int start=from.next(0); start>=0; ) {
+			int end=from.nextAbsent(start) - 1;
+			to.appendRange(start, end);
+			start=(end==0xFFFF) ? -1 : from.next(end + 1);
+		}
+		return to;
+	}
+
+	/**
+	 * The values of a single chunk, as low 16 bits. Operations that may change the best representation return the
+	 * container to use from now on.
+	 */
+	private static abstract class Container {
+		abstract boolean contains(int low);
+
+		abstract int cardinality();
+
+		/**
+		 * @return the first value equal or greater than low, or -1
+		 */
+		abstract int next(int low);
+
+		/**
+		 * @return the first value equal or greater than low that is not in the container, or 65536
+		 */
+		abstract int nextAbsent(int low);
+
+		/**
+		 * low must not be in the container
+		 */
+		abstract Container add(int low);
+
+		/**
+		 * low must be in the container
+		 */
+		abstract Container remove(int low);
+
+		abstract Container addRange(int lo, int hi);
+
+		abstract Container removeRange(int lo, int hi);
+
+		/**
+		 * Adds a range that is above every value already in the container. Used to build containers
+		 */
+		abstract void appendRange(int lo, int hi);
+
+		abstract int sizeInBytes();
+
+		abstract Container copy();
+
+		int numberOfRuns() {
+			int runs=0;
+			for(int start=next(0); start>=0; ) {
+				int end=nextAbsent(start) - 1;
+				runs++;
+				start=(end==0xFFFF) ? -1 : next(end + 1);
+			}
+			return runs;
+		}
+	}
+
+	private static final class ArrayContainer extends Container {
+		private char[] values=new char[4];
+		private int card=0;
+
+		@Override
+		boolean contains(int low) {
+			return Arrays.binarySearch(values, 0, card, (char) low)>=0;
+		}
+
+		@Override
+		int cardinality() {
+			return card;
+		}
+
+		@Override
+		int next(int low) {
+			int pos=Arrays.binarySearch(values, 0, card, (char) low);
+			if(pos < 0) {
+				pos=-pos - 1;
+			}
+			return pos<card ? values[pos] : -1;
+		}
+
+		@Override
+		int nextAbsent(int low) {
+			int pos=Arrays.binarySearch(values, 0, card, (char) low);
+			if(pos < 0) {
+				return low;
+			}
+			while(pos + 1 < card && values[pos + 1]==values[pos] + 1) {
+				pos++;
+			}
+			return values[pos] + 1;
+		}
+
+		@Override
+		Container add(int low) {
+			if(card==MAX_ARRAY) {
+				return convert(this, new BitmapContainer()).add(low);
+			}
+			int pos=-Arrays.binarySearch(values, 0, card, (char) low) - 1;
+			if(card==values.length) {
+				values=Arrays.copyOf(values, Math.min(MAX_ARRAY, card * 2));
+			}
+			System.arraycopy(values, pos, values, pos + 1, card - pos);
+			values[pos]=(char) low;
+			card++;
+			return this;
+		}
+
+		@Override
+		Container remove(int low) {
+			int pos=Arrays.binarySearch(values, 0, card, (char) low);
+			System.arraycopy(values, pos + 1, values, pos, card - pos - 1);
+			card--;
+			return this;
+		}
+
+		@Override
+		Container addRange(int lo, int hi) {
+			return convert(this, new RunContainer()).addRange(lo, hi);
+		}
+
+		@Override
+		Container removeRange(int lo, int hi) {
+			int from=Arrays.binarySearch(values, 0, card, (char) lo);
+			if(from < 0) {
+				from=-from - 1;
+			}
+			int to=Arrays.binarySearch(values, 0, card, (char) hi);
+			to=(to < 0) ? -to - 1 : to + 1;
+			System.arraycopy(values, to, values, from, card - to);
+			card-=to - from;
+			return this;
+		}
+
+		@Override
+		void appendRange(int lo, int hi) {
+			int needed=card + hi - lo + 1;
+			if(needed > values.length) {
+				values=Arrays.copyOf(values, needed);
+			}
+			for(int v=lo; v<=hi; v++) {
+				values[card++]=(char) v;
+			}
+		}
+
+		@Override
+		int sizeInBytes() {
+			return values.length * 2 + 16;
+		}
+
+		@Override
+		Container copy() {
+			ArrayContainer res=new ArrayContainer();
+			res.values=Arrays.copyOf(values, Math.max(4, card));
+			res.card=card;
+			return res;
+		}
+	}
+
+	private static final class BitmapContainer extends Container {
+		private final long[] words=new long[CHUNK_SIZE / 64];
+		private int card=0;
+
+		@Override
+		boolean contains(int low) {
+			return (words[low >>> 6] & (1L << low))!=0;
+		}
+
+		@Override
+		int cardinality() {
+			return card;
+		}
+
+		@Override
+		int next(int low) {
+			int w=low >>> 6;
+			long word=words[w] & (-1L << low);
+			while(true) {
+				if(word!=0) {
+					return (w << 6) + Long.numberOfTrailingZeros(word);
+				}
+				if(++w==words.length) {
+					return -1;
+				}
+				word=words[w];
+			}
+		}
+
+		@Override
+		int nextAbsent(int low) {
+			int w=low >>> 6;
+			long word=~words[w] & (-1L << low);
+			while(true) {
+				if(word!=0) {
+					return (w << 6) + Long.numberOfTrailingZeros(word);
+				}
+				if(++w==words.length) {
+					return CHUNK_SIZE;
+				}
+				word=~words[w];
+			}
+		}
+
+		@Override
+		Container add(int low) {
+			words[low >>> 6]|=1L << low;
+			card++;
+			return this;
+		}
+
+		@Override
+		Container remove(int low) {
+			words[low >>> 6]&=~(1L << low);
+			card--;
+			if(card<=MAX_ARRAY) {
+				return convert(this, new ArrayContainer());
+			}
+			return this;
+		}
+
+		@Override
+		Container addRange(int lo, int hi) {
+			setRange(lo, hi, true);
+			return this;
+		}
+
+		@Override
+		Container removeRange(int lo, int hi) {
+			setRange(lo, hi, false);
+			return this;
+		}
+
+		@Override
+		void appendRange(int lo, int hi) {
+			setRange(lo, hi, true);
+		}
+
+		private void setRange(int lo, int hi, boolean value) {
+			int first=lo >>> 6;
+			int last=hi >>> 6;
+			for(int w=first; w<=last; w++) {
+				long mask=-1L;
+				if(w==first) {
+					mask&=-1L << lo;
+				}
+				if(w==last) {
+					mask&=-1L >>> (63 - (hi & 63));
+				}
+				card-=Long.bitCount(words[w]);
+				words[w]=value ? (words[w] | mask) : (words[w] & ~mask);
+				card+=Long.bitCount(words[w]);
+			}
+		}
+
+		void recount() {
+			card=0;
+			for(long word : words) {
+				card+=Long.bitCount(word);
+			}
+		}
+
+		@Override
+		int sizeInBytes() {
+			return BITMAP_BYTES + 16;
+		}
+
+		@Override
+		Container copy() {
+			BitmapContainer res=new BitmapContainer();
+			System.arraycopy(words, 0, res.words, 0, words.length);
+			res.card=card;
+			return res;
+		}
+	}
+
+	private static final class RunContainer extends Container {
+		private char[] starts=new char[2];
+		private char[] lasts=new char[2];		//inclusive
+		private int runs=0;
+		private int card=0;
+
+		@Override
+		boolean contains(int low) {
+			int i=lastRunStartingAtOrBefore(low);
+			return i>=0 && lasts[i]>=low;
+		}
+
+		@Override
+		int cardinality() {
+			return card;
+		}
+
+		@Override
+		int numberOfRuns() {
+			return runs;
+		}
+
+		@Override
+		int next(int low) {
+			int i=firstRunEndingAtOrAfter(low);
+			if(i==runs) {
+				return -1;
+			}
+			return Math.max(low, starts[i]);
+		}
+
+		@Override
+		int nextAbsent(int low) {
+			int i=lastRunStartingAtOrBefore(low);
+			if(i>=0 && lasts[i]>=low) {
+				return lasts[i] + 1;
+			}
+			return low;
+		}
+
+		@Override
+		Container add(int low) {
+			return addRange(low, low);
+		}
+
+		@Override
+		Container remove(int low) {
+			return removeRange(low, low);
+		}
+
+		@Override
+		Container addRange(int lo, int hi) {
+			int first=firstRunEndingAtOrAfter(lo - 1);		//first run touching or adjacent to [lo, hi]
+			int last=lastRunStartingAtOrBefore(hi + 1);
+			if(first > last) {
+				replaceRuns(first, first, lo, hi, -1, -1);
+				card+=hi - lo + 1;
+			} else {
+				int start=Math.min(lo, starts[first]);
+				int end=Math.max(hi, lasts[last]);
+				card+=(end - start + 1) - cardinalityOf(first, last);
+				replaceRuns(first, last + 1, start, end, -1, -1);
+			}
+			return this;
+		}
+
+		@Override
+		Container removeRange(int lo, int hi) {
+			int first=firstRunEndingAtOrAfter(lo);
+			int last=lastRunStartingAtOrBefore(hi);
+			if(first > last) {
+				return this;
+			}
+			int leftStart=starts[first] < lo ? starts[first] : -1;
+			int rightLast=lasts[last] > hi ? lasts[last] : -1;
+			card-=cardinalityOf(first, last);
+			if(leftStart>=0) {
+				card+=lo - leftStart;
+			}
+			if(rightLast>=0) {
+				card+=rightLast - hi;
+			}
+			if(leftStart>=0 && rightLast>=0) {
+				replaceRuns(first, last + 1, leftStart, lo - 1, hi + 1, rightLast);
+			} else if(leftStart>=0) {
+				replaceRuns(first, last + 1, leftStart, lo - 1, -1, -1);
+			} else if(rightLast>=0) {
+				replaceRuns(first, last + 1, hi + 1, rightLast, -1, -1);
+			} else {
+				replaceRuns(first, last + 1, -1, -1, -1, -1);
+			}
+			return this;
+		}
+
+		@Override
+		void appendRange(int lo, int hi) {
+			if(runs>0 && lasts[runs - 1] + 1==lo) {
+				lasts[runs - 1]=(char) hi;
+			} else {
+				replaceRuns(runs, runs, lo, hi, -1, -1);
+			}
+			card+=hi - lo + 1;
+		}
+
+		/**
+		 * Replaces runs [from, to) with up to two new runs. A run with a negative start is not added.
+		 */
+		private void replaceRuns(int from, int to, int start1, int last1, int start2, int last2) {
+			int added=(start1>=0 ? 1 : 0) + (start2>=0 ? 1 : 0);
+			int newRuns=runs - (to - from) + added;
+			if(newRuns > starts.length) {
+				starts=Arrays.copyOf(starts, Math.max(newRuns, starts.length * 2));
+				lasts=Arrays.copyOf(lasts, starts.length);
+			}
+			System.arraycopy(starts, to, starts, from + added, runs - to);
+			System.arraycopy(lasts, to, lasts, from + added, runs - to);
+			int i=from;
+			if(start1>=0) {
+				starts[i]=(char) start1;
+				lasts[i]=(char) last1;
+				i++;
+			}
+			if(start2>=0) {
+				starts[i]=(char) start2;
+				lasts[i]=(char) last2;
+			}
+			runs=newRuns;
+		}
+
+		private int cardinalityOf(int first, int last) {
+			int res=0;
+			for(int i=first; i<=last; i++) {
+				res+=lasts[i] - starts[i] + 1;
+			}
+			return res;
+		}
+
+		/**
+		 * @return the lowest run whose last value is >= value, or runs if there is none
+		 */
+		private int firstRunEndingAtOrAfter(int value) {
+			int lo=0;
+			int hi=runs - 1;
+			while(lo<=hi) {
+				int mid=(lo + hi) >>> 1;
+				if(lasts[mid] < value) {
+					lo=mid + 1;
+				} else {
+					hi=mid - 1;
+				}
+			}
+			return lo;
+		}
+
+		/**
+		 * @return the highest run whose start is <= value, or -1 if there is none
+		 */
+		private int lastRunStartingAtOrBefore(int value) {
+			int lo=0;
+			int hi=runs - 1;
+			while(lo<=hi) {
+				int mid=(lo + hi) >>> 1;
+				if(starts[mid] > value) {
+					hi=mid - 1;
+				} else {
+					lo=mid + 1;
+				}
+			}
+			return hi;
+		}
+
+		@Override
+		int sizeInBytes() {
+			return starts.length * 4 + 16;
+		}
+
+		@Override
+		Container copy() {
+			RunContainer res=new RunContainer();
+			res.starts=Arrays.copyOf(starts, Math.max(2, runs));
+			res.lasts=Arrays.copyOf(lasts, Math.max(2, runs));
+			res.runs=runs;
+			res.card=card;
+			return res;
+		}
+	}
+}
@@ -0,0 +1,14 @@
+package com.lqb.multiselection;
+
+/**
+ * An Iterator over primitive ints, so iterating doesn't box every value
+ */
+public interface IntIterator {
+	boolean hasNext();
+
+	/**
+	 * @return the next value
+	 * @throws java.util.NoSuchElementException if there are no more values
+	 */
+	int next();
+}
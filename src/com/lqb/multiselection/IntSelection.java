@@ -0,0 +1,192 @@
+package com.lqb.multiselection;
+
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Same as {@link SetSelection}, but for non negative int keys (row ids, positions...). The selection is kept in an
+ * {@link IntBitmap}, so there is no boxing and selecting whole ranges costs memory by number of ranges, not by number
+ * of items.
+ */
+public class IntSelection {
+	private final IntBitmap elements=new IntBitmap();
+	protected ReentrantLock lock=new ReentrantLock();
+
+	/**
+	 * adds an item to the selection.
+	 *
+	 * @param element
+	 * @return true if it was not selected before
+	 */
+	public boolean select(int element) {
+		lock.lock();
+		try {
+			return elements.add(element);
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Unselects the item if it is selected. If not, nothing happens
+	 *
+	 * @param element
+	 * @return true if it existed and was unselected
+	 */
+	public boolean unselect(int element) {
+		lock.lock();
+		try {
+			return elements.remove(element);
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	public void toggle(int element) {
+		lock.lock();
+		try {
+			if(!elements.remove(element)) {
+				elements.add(element);
+			}
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Selects all the items between from and to, both inclusive
+	 *
+	 * @param from
+	 * @param to
+	 * @return how many of them were not selected before
+	 */
+	public long selectRange(int from, int to) {
+		lock.lock();
+		try {
+			return elements.addRange(from, to);
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Unselects all the items between from and to, both inclusive
+	 *
+	 * @param from
+	 * @param to
+	 * @return how many of them were selected before
+	 */
+	public long unselectRange(int from, int to) {
+		lock.lock();
+		try {
+			return elements.removeRange(from, to);
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Selects every item of other, a chunk at a time
+	 *
+	 * @param other
+	 * @return how many items were not selected before
+	 */
+	public long union(IntSelection other) {
+		return union(other.elements());
+	}
+
+	public long union(IntBitmap values) {
+		lock.lock();
+		try {
+			return elements.or(values);
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Keeps selected only the items that are in other too, a chunk at a time
+	 *
+	 * @param other
+	 * @return how many items have been unselected
+	 */
+	public long intersect(IntSelection other) {
+		return intersect(other.elements());
+	}
+
+	public long intersect(IntBitmap values) {
+		lock.lock();
+		try {
+			return elements.and(values);
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Unselects every item of other, a chunk at a time
+	 *
+	 * @param other
+	 * @return how many items have been unselected
+	 */
+	public long subtract(IntSelection other) {
+		return subtract(other.elements());
+	}
+
+	public long subtract(IntBitmap values) {
+		lock.lock();
+		try {
+			return elements.andNot(values);
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	public boolean isSelected(int element) {
+		lock.lock();
+		try {
+			return elements.contains(element);
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	public void clearSelection() {
+		lock.lock();
+		try {
+			elements.clear();
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	public int size() {
+		lock.lock();
+		try {
+			return (int) Math.min(Integer.MAX_VALUE, elements.cardinality());
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Iterates a copy of the selection taken with the lock held, so it is safe to change the selection meanwhile. The
+	 * copy costs memory by number of chunks, see {@link #elements()}.
+	 *
+	 * @return the selected items, in ascending order
+	 */
+	public IntIterator intIterator() {
+		return elements().iterator();
+	}
+
+	/**
+	 * @return a copy of the selected items
+	 */
+	public IntBitmap elements() {
+		lock.lock();
+		try {
+			return new IntBitmap(elements);
+		} finally {
+			lock.unlock();
+		}
+	}
+}
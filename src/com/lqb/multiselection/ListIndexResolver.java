@@ -0,0 +1,21 @@
+package com.lqb.multiselection;
+
+import java.util.List;
+
+/**
+ * Default {@link IndexResolver}, it just asks the List, so every lookup is a linear scan.
+ * 
+ * @param <T>
+ */
+public class ListIndexResolver<T> implements IndexResolver<T> {
+	private final List<T> collection;
+	
+	public ListIndexResolver(List<T> collection) {
+		this.collection=collection;
+	}
+	
+	@Override
+	public int indexOf(T element) {
+		return collection.indexOf(element);
+	}
+}
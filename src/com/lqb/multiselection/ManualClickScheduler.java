@@ -0,0 +1,70 @@
+package com.lqb.multiselection;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A {@link ClickScheduler} with a clock of its own, that only moves when told to. Delayed clicks are resolved by the
+ * thread calling {@link #advance(long, TimeUnit)}, as soon as the clock reaches them. No thread is involved, so tests
+ * don't need to sleep and servers can replay clicks as fast as they come.
+ */
+public class ManualClickScheduler extends ClickScheduler {
+	private final Map<TimerWheel.Timeout, Long> scheduled=new LinkedHashMap<TimerWheel.Timeout, Long>();
+	private long now=0;
+	
+	/**
+	 * Moves the clock forward, running everything that becomes due, in order
+	 * 
+	 * @param amount
+	 * @param unit
+	 */
+	public void advance(long amount, TimeUnit unit) {
+		long target;
+		synchronized(this) {
+			target=now + unit.toNanos(amount);
+		}
+		while(true) {
+			TimerWheel.Timeout next=null;
+			synchronized(this) {
+				long nextDue=target;
+				for(Map.Entry<TimerWheel.Timeout, Long> entry : scheduled.entrySet()) {
+					if(entry.getValue()<=target && (next==null || entry.getValue() < nextDue)) {
+						next=entry.getKey();
+						nextDue=entry.getValue();
+					}
+				}
+				if(next==null) {
+					now=Math.max(now, target);
+					return;
+				}
+				scheduled.remove(next);
+				now=Math.max(now, nextDue);
+			}
+			next.run();
+		}
+	}
+	
+	/**
+	 * @return the number of delayed clicks waiting
+	 */
+	public synchronized int pending() {
+		return scheduled.size();
+	}
+	
+	@Override
+	synchronized long nanoTime() {
+		return now;
+	}
+	
+	@Override
+	synchronized void schedule(TimerWheel.Timeout timeout, long delayNanos) {
+		scheduled.remove(timeout);
+		scheduled.put(timeout, now + delayNanos);
+	}
+	
+	@Override
+	synchronized void cancel(TimerWheel.Timeout timeout) {
+		scheduled.remove(timeout);
+	}
+}
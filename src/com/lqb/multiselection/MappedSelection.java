@@ -0,0 +1,101 @@
+package com.lqb.multiselection;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * A selection saved with {@link SelectionFile}, mapped in memory and read without deserializing it. isSelected costs
+ * O(log runs) for run encoded files and O(1) for bitmap encoded ones, and only the pages it touches are read from disk.
+ *
+ * The file must not be written while mapped. Lookups are thread safe.
+ */
+public class MappedSelection implements Closeable {
+	private final RandomAccessFile file;
+	private final MappedByteBuffer buffer;
+	private final byte encoding;
+	private final long size;
+	private final int first;		//first selected value
+	private final int count;		//number of runs or words
+
+	public MappedSelection(File path) throws IOException {
+		file=new RandomAccessFile(path, "r");
+		try {
+			FileChannel channel=file.getChannel();
+			if(channel.size() > Integer.MAX_VALUE) {
+				throw new IOException("Selection file too big to be mapped: " + path);
+			}
+			buffer=channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+			if(buffer.capacity() < SelectionFile.HEADER_SIZE + 8) {
+				throw new IOException("Not a selection file: " + path);
+			}
+			SelectionFile.checkHeader(buffer.getInt(0), buffer.getShort(4));
+			encoding=buffer.get(6);
+			size=buffer.getLong(8);
+			if(encoding!=SelectionFile.RUNS && encoding!=SelectionFile.BITMAP) {
+				throw new IOException("Unknown selection encoding: " + encoding);
+			}
+			first=buffer.getInt(SelectionFile.HEADER_SIZE);
+			count=buffer.getInt(SelectionFile.HEADER_SIZE + 4);
+			if(buffer.capacity() < SelectionFile.HEADER_SIZE + 8 + (long) count * 8) {
+				throw new IOException("Truncated selection file: " + path);
+			}
+		} catch(IOException e) {
+			file.close();
+			throw e;
+		} catch(RuntimeException e) {
+			file.close();
+			throw e;
+		}
+	}
+
+	public boolean isSelected(int value) {
+		if(value < 0) {
+			return false;
+		} else if(encoding==SelectionFile.BITMAP) {
+			long offset=(long) value - first;
+			if(offset < 0 || offset >= (long) count * 64) {
+				return false;
+			}
+			long word=buffer.getLong(data((int) (offset >>> 6)));
+			return (word & (1L << offset))!=0;
+		} else {
+			//last run starting at or before value
+			int low=0;
+			int high=count - 1;
+			int found=-1;
+			while(low<=high) {
+				int mid=(low + high) >>> 1;
+				if(buffer.getInt(data(mid)) <= value) {
+					found=mid;
+					low=mid + 1;
+				} else {
+					high=mid - 1;
+				}
+			}
+			return found>=0 && buffer.getInt(data(found) + 4)>=value;
+		}
+	}
+
+	/**
+	 * @return the number of selected values
+	 */
+	public long size() {
+		return size;
+	}
+
+	/**
+	 * Closes the file. The mapping itself is released when this object is garbage collected.
+	 */
+	@Override
+	public void close() throws IOException {
+		file.close();
+	}
+
+	private static int data(int index) {
+		return SelectionFile.HEADER_SIZE + 8 + index * 8;
+	}
+}
@@ -0,0 +1,614 @@
+package com.lqb.multiselection;
+
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+import com.lqb.multiselection.events.RangeSelectClickEvent;
+
+/**
+ * Works like {@link ClickSelection}, but the selection is kept as sorted intervals of positions of the collection
+ * instead of a Set of elements, and the starting point for shift operations is remembered as a position.
+ *
+ * That way a shiftClick costs O(log n) no matter how wide the range is. With per item events turned on, it fires a single
+ * {@link RangeSelectClickEvent} instead of one event per item. Use it with a {@link HashIndexResolver}, or the *At
+ * methods, to avoid the linear List.indexOf lookups as well.
+ *
+ * As the selection is positional, elements that are not in the collection cannot be selected, and changes to the
+ * collection must be notified with itemsInserted, itemsRemoved or itemMoved, so the selected ranges are shifted.
+ *
+ * @param <T>
+ */
+public class RangeClickSelection<T> extends ClickSelection<T> {
+	private final IndexRangeSet ranges=new IndexRangeSet();
+	private int anchor=-1;		//position of the last element clicked without shift
+	private volatile IndexRangeSet published;		//copy of ranges read without locking, only in read optimized mode
+	private int publishedModCount;
+
+	public RangeClickSelection(List<T> collection) {
+		super(collection);
+	}
+
+	public RangeClickSelection(List<T> collection, IndexResolver<T> resolver) {
+		super(collection, resolver);
+	}
+
+	/**
+	 * Selects out of items that are not in memory. Ranges are selected by position, so the items in between are never
+	 * read from the source.
+	 *
+	 * @param source
+	 */
+	public RangeClickSelection(SelectionSource<T> source) {
+		super(source);
+	}
+
+	@Override
+	public void normalClick(T element) {
+		beginGesture();
+		try {
+			normalClickAt(resolver.indexOf(element));
+		} finally {
+			endGesture();
+		}
+	}
+
+	@Override
+	public void normalClickAt(int index) {
+		beginGesture();
+		try {
+			if(index<0 || index>=collection.size()) {
+				return;
+			} else {
+				int last=extentOf(index);
+				boolean isElementSelected=ranges.containsAll(index, last);
+				int selectionSize=ranges.size();
+				clearSelectionInternal();
+				if(!isElementSelected || selectionSize>last - index + 1) {
+					selectExtentInternal(index, last);
+				}
+				anchor=index;
+			}
+		} finally {
+			endGesture();
+		}
+	}
+
+	@Override
+	public void ctrlClick(T element) {
+		beginGesture();
+		try {
+			ctrlClickAt(resolver.indexOf(element));
+		} finally {
+			endGesture();
+		}
+	}
+
+	@Override
+	public void ctrlClickAt(int index) {
+		beginGesture();
+		try {
+			if(index<0 || index>=collection.size()) {
+				return;
+			} else {
+				int last=extentOf(index);
+				if(ranges.containsAll(index, last)) {
+					unselectRangeInternal(index, last);
+				} else {
+					selectExtentInternal(index, last);
+				}
+				anchor=index;
+			}
+		} finally {
+			endGesture();
+		}
+	}
+
+	@Override
+	protected void shiftClickAt(int index, boolean clearSelection) {
+		beginGesture();
+		try {
+			if(index<0 || index>=collection.size()) {
+				return;
+			} else {
+				int from=(anchor>=0 && anchor<collection.size()) ? anchor : 0;
+				if(index>=from) {
+					index=extentOf(index);
+				} else {
+					from=extentOf(from);
+				}
+				selectShiftRangeInternal(from, index, clearSelection);
+			}
+		} finally {
+			endGesture();
+		}
+	}
+
+	@Override
+	protected void selectRangeInternal(int from, int to) {
+		measureRange(from, to);
+		List<IndexRangeSet.Range> gaps=ranges.gaps(from, to);
+		if(ranges.add(from, to)>0) {
+			for(IndexRangeSet.Range gap : gaps) {
+				recordAdded(gap.from, gap.to);
+			}
+			if(isPerItemEvents()) {
+				fireSelectRange(Math.min(from, to), Math.max(from, to));
+			}
+		}
+	}
+
+	/**
+	 * Unselects the positions between from and to, both inclusive and in order
+	 */
+	@Override
+	protected void unselectRangeInternal(int from, int to) {
+		for(IndexRangeSet.Range range : ranges.ranges(from, to)) {
+			recordRemoved(range.from, range.to);
+			if(isPerItemEvents()) {
+				for(int i=range.from; i<=range.to; i++) {
+					fireUnselectItem(collection.get(i));
+				}
+			}
+		}
+		ranges.remove(from, to);
+	}
+
+	/**
+	 * O(log n) per selected range of the collection, no matter how many items there are
+	 */
+	@Override
+	protected void invertSelectionInternal() {
+		if(collection.size()==0) {
+			return;
+		}
+		int last=collection.size() - 1;
+		for(IndexRangeSet.Range range : ranges.ranges(0, last)) {
+			recordRemoved(range.from, range.to);
+		}
+		ranges.flip(0, last);
+		List<IndexRangeSet.Range> selected=ranges.ranges(0, last);
+		for(IndexRangeSet.Range range : selected) {
+			recordAdded(range.from, range.to);
+		}
+		if(isPerItemEvents()) {
+			fireClearSelection();
+			for(IndexRangeSet.Range range : ranges.ranges()) {
+				fireSelectRange(range.from, range.to);
+			}
+		}
+	}
+
+	/**
+	 * When other is a RangeClickSelection over the same collection, both interval lists are merged instead of going
+	 * item by item. Otherwise the positions of its items are looked up first, and merged the same way.
+	 */
+	@Override
+	public boolean union(Iterable<? extends T> other) {
+		IndexRangeSet otherRanges=rangesOf(other);
+		Iterable<? extends T> items=(otherRanges==null) ? snapshotOf(other) : null;
+		beginGesture();
+		try {
+			IndexRangeSet added=(otherRanges!=null) ? otherRanges : positionsOf(items);
+			added.remove(collection.size(), Integer.MAX_VALUE);
+			added.removeAll(ranges);
+			for(IndexRangeSet.Range range : added.ranges()) {
+				recordAdded(range.from, range.to);
+				if(isPerItemEvents()) {
+					fireSelectRange(range.from, range.to);
+				}
+			}
+			return ranges.addAll(added)>0;
+		} finally {
+			endGesture();
+		}
+	}
+
+	/**
+	 * Same as {@link #union(Iterable)}, keeping only the positions of other
+	 */
+	@Override
+	public boolean intersect(Iterable<? extends T> other) {
+		IndexRangeSet otherRanges=rangesOf(other);
+		Iterable<? extends T> items=(otherRanges==null) ? snapshotOf(other) : null;
+		beginGesture();
+		try {
+			IndexRangeSet keep=(otherRanges!=null) ? otherRanges : positionsOf(items);
+			IndexRangeSet removed=new IndexRangeSet(ranges);
+			removed.removeAll(keep);
+			return unselectPositionsInternal(removed);
+		} finally {
+			endGesture();
+		}
+	}
+
+	/**
+	 * Same as {@link #union(Iterable)}, unselecting the positions of other
+	 */
+	@Override
+	public boolean subtract(Iterable<? extends T> other) {
+		IndexRangeSet otherRanges=rangesOf(other);
+		Iterable<? extends T> items=(otherRanges==null) ? snapshotOf(other) : null;
+		beginGesture();
+		try {
+			IndexRangeSet removed=(otherRanges!=null) ? otherRanges : positionsOf(items);
+			removed.retainAll(ranges);
+			return unselectPositionsInternal(removed);
+		} finally {
+			endGesture();
+		}
+	}
+
+	/**
+	 * Read before locking this selection, as {@link SetSelection#snapshotOf(Iterable)} does
+	 * 
+	 * @return the selected positions of other if it is a RangeClickSelection, null if not
+	 */
+	private static IndexRangeSet rangesOf(Iterable<?> other) {
+		return (other instanceof RangeClickSelection<?>) ? ((RangeClickSelection<?>) other).selectedRanges() : null;
+	}
+
+	/**
+	 * @param removed selected positions to unselect
+	 */
+	private boolean unselectPositionsInternal(IndexRangeSet removed) {
+		for(IndexRangeSet.Range range : removed.ranges()) {
+			recordRemoved(range.from, range.to);
+			if(isPerItemEvents()) {
+				for(int i=range.from; i<=range.to; i++) {
+					fireUnselectItem(collection.get(i));
+				}
+			}
+		}
+		return ranges.removeAll(removed)>0;
+	}
+
+	/**
+	 * Same as {@link #itemsRemoved(int, List)}, as only the number of removed items is needed here. With per item events
+	 * on, no {@link com.lqb.multiselection.events.UnselectClickEvent} can be fired this way.
+	 *
+	 * @param index position of the first removed item
+	 * @param count
+	 */
+	public void itemsRemoved(int index, int count) {
+		beginGesture();
+		try {
+			itemsRemovedInternal(index, count, null);
+			collectionChanged();
+		} finally {
+			endGesture();
+		}
+	}
+
+	@Override
+	protected void itemsInsertedInternal(int index, int count) {
+		ranges.insert(index, count);
+		if(anchor>=index) {
+			anchor+=count;
+		}
+	}
+
+	@Override
+	protected void itemsRemovedInternal(int index, List<? extends T> removed) {
+		itemsRemovedInternal(index, removed.size(), removed);
+	}
+
+	private void itemsRemovedInternal(int index, int count, List<? extends T> removed) {
+		if(count<=0) {
+			return;
+		}
+		for(IndexRangeSet.Range range : ranges.ranges(index, index + count - 1)) {
+			recordRemoved(range.from, range.to);
+			if(isPerItemEvents() && removed!=null) {
+				for(int i=range.from; i<=range.to; i++) {
+					fireUnselectItem(removed.get(i - index));
+				}
+			}
+		}
+		ranges.delete(index, count);
+		if(anchor>=index + count) {
+			anchor-=count;
+		} else if(anchor>=index) {
+			anchor=-1;
+		}
+	}
+
+	@Override
+	protected void itemMovedInternal(int from, int to) {
+		boolean selected=ranges.contains(from);
+		ranges.delete(from, 1);
+		ranges.insert(to, 1);
+		if(selected) {
+			ranges.add(to, to);
+		}
+		if(anchor==from) {
+			anchor=to;
+		} else {
+			if(anchor > from) {
+				anchor--;
+			}
+			if(anchor>=to) {
+				anchor++;
+			}
+		}
+	}
+
+	@Override
+	protected int anchorIndex() {
+		return anchor;
+	}
+
+	@Override
+	protected void setAnchorIndex(int index) {
+		anchor=index;
+	}
+
+	@Override
+	protected IndexRangeSet selectedPositions() {
+		return new IndexRangeSet(ranges);
+	}
+
+	/**
+	 * Tells how many positions a click on index covers. normalClick and ctrlClick select or unselect all of them as a
+	 * unit, and shiftClick extends its range to include them.
+	 *
+	 * @param index a valid position of the collection
+	 * @return the last position covered, index itself by default
+	 */
+	protected int extentOf(int index) {
+		return index;
+	}
+
+	private void selectExtentInternal(int index, int last) {
+		if(last==index) {
+			selectIndexInternal(index);
+		} else {
+			selectRangeInternal(index, last);
+		}
+	}
+
+	private void selectIndexInternal(int index) {
+		if(ranges.add(index, index)>0) {
+			recordAdded(index, index);
+			if(isPerItemEvents()) {
+				fireSelectItem(collection.get(index));
+			}
+		}
+	}
+
+	/**
+	 * @param index position in the collection
+	 * @return true if the element at that position is selected
+	 */
+	public boolean isSelectedAt(int index) {
+		IndexRangeSet view=publishedRanges();
+		if(view!=null) {
+			return view.contains(index);
+		}
+		lock.lock();
+		try {
+			return ranges.contains(index);
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * @param from
+	 * @param to
+	 * @return true if all the elements between these positions (both inclusive) are selected
+	 */
+	public boolean isRangeSelected(int from, int to) {
+		IndexRangeSet view=publishedRanges();
+		if(view!=null) {
+			return view.containsAll(from, to);
+		}
+		lock.lock();
+		try {
+			return ranges.containsAll(from, to);
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * @return a copy of the selected positions
+	 */
+	public IndexRangeSet selectedRanges() {
+		IndexRangeSet view=publishedRanges();
+		if(view!=null) {
+			return new IndexRangeSet(view);
+		}
+		lock.lock();
+		try {
+			return new IndexRangeSet(ranges);
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	@Override
+	public boolean select(T element) {
+		lockForChange();
+		try {
+			int index=resolver.indexOf(element);
+			return index>=0 && ranges.add(index, index)>0;
+		} finally {
+			unlock();
+		}
+	}
+
+	@Override
+	public boolean unselect(T element) {
+		lockForChange();
+		try {
+			int index=resolver.indexOf(element);
+			return index>=0 && ranges.remove(index, index)>0;
+		} finally {
+			unlock();
+		}
+	}
+
+	@Override
+	public void toggle(T element) {
+		lockForChange();
+		try {
+			int index=resolver.indexOf(element);
+			if(index<0) {
+				return;
+			} else if(ranges.contains(index)) {
+				ranges.remove(index, index);
+			} else {
+				ranges.add(index, index);
+			}
+		} finally {
+			unlock();
+		}
+	}
+
+	@Override
+	public boolean isSelected(T element) {
+		lock.lock();
+		try {
+			int index=resolver.indexOf(element);
+			return index>=0 && ranges.contains(index);
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	@Override
+	public void clearSelection() {
+		lockForChange();
+		try {
+			ranges.clear();
+		} finally {
+			unlock();
+		}
+	}
+
+	@Override
+	public int size() {
+		IndexRangeSet view=publishedRanges();
+		if(view!=null) {
+			return view.size();
+		}
+		lock.lock();
+		try {
+			return ranges.size();
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Iterates the selected elements in the same order they have in the collection. The selected positions are copied
+	 * first, so it is safe to change the selection meanwhile
+	 */
+	@Override
+	public Iterator<T> iterator() {
+		final IndexRangeSet selected=selectedRanges();
+		return new Iterator<T>() {
+			private int next=selected.nextSetIndex(0);
+
+			@Override
+			public boolean hasNext() {
+				return next>=0 && next<collection.size();
+			}
+
+			@Override
+			public T next() {
+				if(!hasNext()) {
+					throw new NoSuchElementException();
+				}
+				T element=collection.get(next);
+				next=selected.nextSetIndex(next + 1);
+				return element;
+			}
+
+			@Override
+			public void remove() {
+				throw new UnsupportedOperationException();
+			}
+		};
+	}
+
+	@Override
+	public Set<T> elements() {
+		IndexRangeSet view=publishedRanges();
+		if(view!=null) {
+			return elementsAt(view);
+		}
+		lock.lock();
+		try {
+			return elementsAt(ranges);
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	private Set<T> elementsAt(IndexRangeSet positions) {
+		Set<T> res=new HashSet<T>();
+		for(int i=positions.nextSetIndex(0); i>=0 && i<collection.size(); i=positions.nextSetIndex(i + 1)) {
+			res.add(collection.get(i));
+		}
+		return res;
+	}
+
+	/**
+	 * Unlike {@link SetSelection#snapshot()} this is O(n), as the elements need to be read from the collection.
+	 * {@link #selectedRanges()} is the cheap alternative.
+	 */
+	@Override
+	public SelectionSnapshot<T> snapshot() {
+		return new SelectionSnapshot<T>(elements());
+	}
+
+	/**
+	 * Publishes a copy of the selected ranges instead of a Set. isSelectedAt, isRangeSelected, selectedRanges, size,
+	 * iterator, elements and snapshot read it without locking. isSelected still locks, as the {@link IndexResolver}
+	 * is not thread safe.
+	 */
+	@Override
+	public void setReadOptimized(boolean readOptimized) {
+		lock.lock();
+		try {
+			super.setReadOptimized(readOptimized);
+			publishedModCount=ranges.modCount();
+			published=readOptimized ? new IndexRangeSet(ranges) : null;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	@Override
+	protected void publishChanges() {
+		super.publishChanges();
+		if(published!=null && publishedModCount!=ranges.modCount()) {
+			publishedModCount=ranges.modCount();
+			published=new IndexRangeSet(ranges);
+		}
+	}
+
+	/**
+	 * @return the ranges to read without locking, or null if the lock must be taken
+	 */
+	private IndexRangeSet publishedRanges() {
+		return lock.isHeldByCurrentThread() ? null : published;
+	}
+
+	protected void fireSelectRange(int fromIndex, int toIndex) {
+		SelectionListener<T>[] ls=listenersNow();
+		if(ls==null) {
+			queue(new RangeSelectClickEvent<T>(this, fromIndex, toIndex));
+		} else if(ls.length > 0) {
+			long start=dispatchStart();
+			for(int i=0; i<ls.length; i++) {
+				ls[i].onSelectRange(fromIndex, toIndex);
+			}
+			dispatchEnd(start);
+		}
+	}
+}
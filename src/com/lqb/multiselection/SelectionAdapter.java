@@ -0,0 +1,34 @@
+package com.lqb.multiselection;
+
+import java.util.Collection;
+
+/**
+ * A {@link SelectionListener} that does nothing, to override only the methods needed
+ * 
+ * @param <T>
+ */
+public abstract class SelectionAdapter<T> implements SelectionListener<T> {
+	@Override
+	public void onSelect(T element) {
+	}
+	
+	@Override
+	public void onUnselect(T element) {
+	}
+	
+	@Override
+	public void onSelectRange(int fromIndex, int toIndex) {
+	}
+	
+	@Override
+	public void onClear() {
+	}
+	
+	@Override
+	public void onDelta(SelectionDelta delta) {
+	}
+	
+	@Override
+	public void onDoubleClick(Collection<T> selection) {
+	}
+}
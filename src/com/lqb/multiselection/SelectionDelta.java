@@ -0,0 +1,69 @@
+package com.lqb.multiselection;
+
+/**
+ * The net change of a selection over the positions of its collection. Applying it to the previous selection means:
+ * clear it if {@link #isCleared()}, then unselect {@link #removed()}, then select {@link #added()}.
+ * 
+ * This class is not thread safe, the selections using it are expected to hold their own lock.
+ */
+public class SelectionDelta {
+	private boolean cleared=false;
+	private final IndexRangeSet added=new IndexRangeSet();
+	private final IndexRangeSet removed=new IndexRangeSet();
+	
+	public void recordClear() {
+		cleared=true;
+		added.clear();
+		removed.clear();
+	}
+	
+	public void recordAdded(int from, int to) {
+		removed.remove(from, to);
+		added.add(from, to);
+	}
+	
+	public void recordRemoved(int from, int to) {
+		added.remove(from, to);
+		if(!cleared) {
+			removed.add(from, to);
+		}
+	}
+	
+	/**
+	 * Merges the changes done after this ones, so this becomes the net change of both
+	 * 
+	 * @param next
+	 */
+	public void append(SelectionDelta next) {
+		if(next.cleared) {
+			recordClear();
+		}
+		for(IndexRangeSet.Range range : next.removed.ranges()) {
+			recordRemoved(range.from, range.to);
+		}
+		for(IndexRangeSet.Range range : next.added.ranges()) {
+			recordAdded(range.from, range.to);
+		}
+	}
+	
+	public boolean isCleared() {
+		return cleared;
+	}
+	
+	public IndexRangeSet added() {
+		return added;
+	}
+	
+	public IndexRangeSet removed() {
+		return removed;
+	}
+	
+	public boolean isEmpty() {
+		return !cleared && added.isEmpty() && removed.isEmpty();
+	}
+	
+	@Override
+	public String toString() {
+		return (cleared ? "cleared, " : "") + "added=" + added + ", removed=" + removed;
+	}
+}
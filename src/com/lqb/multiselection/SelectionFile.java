@@ -0,0 +1,160 @@
+package com.lqb.multiselection;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Binary format for selections of positions or int keys ({@link IndexRangeSet}, {@link IntBitmap}), so they can be
+ * persisted and shared between processes without going element by element.
+ *
+ * All numbers are big endian, as written by {@link DataOutput}:
+ * <pre>
+ * 	int		MAGIC
+ * 	short	VERSION
+ * 	byte	encoding, RUNS or BITMAP
+ * 	byte	0, reserved
+ * 	long	number of selected values
+ * 	int		first selected value, 0 if there are none
+ * 	int		number of runs or words
+ * 	RUNS:	every run as two ints: first and last value, both inclusive, sorted
+ * 	BITMAP:	the words as longs. Bit i of word w is value first + w * 64 + i
+ * </pre>
+ * The writer picks the smallest encoding. The data always starts at {@link #HEADER_SIZE} + 8, so
+ * {@link MappedSelection} can answer lookups straight from the file.
+ */
+public final class SelectionFile {
+	public static final int MAGIC=0x4D53454C;		//"MSEL"
+	public static final short VERSION=1;
+	public static final byte RUNS=0;
+	public static final byte BITMAP=1;
+	public static final int HEADER_SIZE=16;
+
+	private SelectionFile() {
+	}
+
+	public static void write(IndexRangeSet positions, DataOutput out) throws IOException {
+		write(positions.ranges(), positions.size(), out);
+	}
+
+	public static void write(IntBitmap values, DataOutput out) throws IOException {
+		write(values.runs(), values.cardinality(), out);
+	}
+
+	private static void write(List<IndexRangeSet.Range> runs, long cardinality, DataOutput out) throws IOException {
+		int first=runs.isEmpty() ? 0 : runs.get(0).from;
+		int last=runs.isEmpty() ? -1 : runs.get(runs.size() - 1).to;
+		long words=((long) last - first + 64) / 64;
+		boolean bitmap=words < (long) runs.size();		//a word costs 8 bytes, as a run does
+
+		out.writeInt(MAGIC);
+		out.writeShort(VERSION);
+		out.writeByte(bitmap ? BITMAP : RUNS);
+		out.writeByte(0);
+		out.writeLong(cardinality);
+		out.writeInt(first);
+		if(bitmap) {
+			out.writeInt((int) words);
+			long[] bits=new long[(int) words];
+			for(IndexRangeSet.Range run : runs) {
+				for(int i=run.from - first; i<=run.to - first; i++) {
+					bits[i >>> 6]|=1L << i;
+				}
+			}
+			for(long word : bits) {
+				out.writeLong(word);
+			}
+		} else {
+			out.writeInt(runs.size());
+			for(IndexRangeSet.Range run : runs) {
+				out.writeInt(run.from);
+				out.writeInt(run.to);
+			}
+		}
+	}
+
+	public static IndexRangeSet readRanges(DataInput in) throws IOException {
+		final IndexRangeSet res=new IndexRangeSet();
+		read(in, new RunHandler() {
+			@Override
+			public void run(int from, int to) {
+				res.add(from, to);
+			}
+		});
+		return res;
+	}
+
+	public static IntBitmap readBitmap(DataInput in) throws IOException {
+		final IntBitmap res=new IntBitmap();
+		read(in, new RunHandler() {
+			@Override
+			public void run(int from, int to) {
+				res.addRange(from, to);
+			}
+		});
+		return res;
+	}
+
+	private static void read(DataInput in, RunHandler handler) throws IOException {
+		checkHeader(in.readInt(), in.readShort());
+		byte encoding=in.readByte();
+		in.readByte();
+		in.readLong();
+		int first=in.readInt();
+		if(encoding==RUNS) {
+			int count=in.readInt();
+			for(int i=0; i<count; i++) {
+				int from=checkPosition(in.readInt());
+				int to=checkPosition(in.readInt());
+				if(to < from) {
+					throw new IOException("Run ends before it starts: " + from + "-" + to);
+				}
+				handler.run(from, to);
+			}
+		} else if(encoding==BITMAP) {
+			int words=in.readInt();
+			int runStart=-1;
+			for(int w=0; w<words; w++) {
+				long word=in.readLong();
+				for(int i=0; i<64; i++) {
+					boolean set=(word & (1L << i))!=0;
+					long value=(long) first + w * 64L + i;
+					if(set && runStart<0) {
+						runStart=checkPosition(value);
+					} else if(!set && runStart>=0) {
+						handler.run(runStart, checkPosition(value - 1));
+						runStart=-1;
+					}
+				}
+			}
+			if(runStart>=0) {
+				handler.run(runStart, checkPosition((long) first + words * 64L - 1));
+			}
+		} else {
+			throw new IOException("Unknown selection encoding: " + encoding);
+		}
+	}
+
+	/**
+	 * Positions are computed as longs, so a corrupt file can't wrap them around
+	 */
+	private static int checkPosition(long value) throws IOException {
+		if(value < 0 || value > Integer.MAX_VALUE) {
+			throw new IOException("Position out of range: " + value);
+		}
+		return (int) value;
+	}
+
+	static void checkHeader(int magic, short version) throws IOException {
+		if(magic!=MAGIC) {
+			throw new IOException("Not a selection file");
+		} else if(version!=VERSION) {
+			throw new IOException("Unsupported selection file version: " + version);
+		}
+	}
+
+	private interface RunHandler {
+		void run(int from, int to);
+	}
+}
@@ -0,0 +1,198 @@
+package com.lqb.multiselection;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.List;
+
+/**
+ * Undo and redo stacks of the gestures done on a {@link ClickSelection}. Each step only keeps the positions whose
+ * selection changed, as ranges, and the starting point for shift operations before and after the gesture. So the
+ * memory of a step, and the cost of undoing it, depend on the size of the change and not on the size of the selection.
+ *
+ * The oldest steps are dropped when there are more than maxSteps, or when their estimated memory goes over maxBytes.
+ *
+ * This class is not thread safe, the selection using it is expected to hold its own lock.
+ */
+class SelectionHistory {
+	private static final int BYTES_PER_STEP=160;		//the step, its two IndexRangeSets and their TreeMaps
+	private static final int BYTES_PER_RANGE=72;		//a TreeMap entry and its two Integers
+
+	private final int maxSteps;
+	private final long maxBytes;
+	private final Deque<Step> undo=new ArrayDeque<Step>();		//newest first
+	private final Deque<Step> redo=new ArrayDeque<Step>();		//next to redo first
+	private long bytes=0;		//estimated memory of the steps in both stacks
+	private Step current=null;		//changes of the gesture in progress, null when not recording
+
+	SelectionHistory(int maxSteps, long maxBytes) {
+		this.maxSteps=maxSteps;
+		this.maxBytes=maxBytes;
+	}
+
+	void begin(int anchor) {
+		current=new Step(anchor);
+	}
+
+	/**
+	 * The positions between from and to were not selected, and now they are
+	 */
+	void recordAdded(int from, int to) {
+		if(current!=null) {
+			current.recordAdded(from, to);
+		}
+	}
+
+	/**
+	 * The positions between from and to were selected, and now they are not
+	 */
+	void recordRemoved(int from, int to) {
+		if(current!=null) {
+			current.recordRemoved(from, to);
+		}
+	}
+
+	/**
+	 * Makes the gesture in progress part of the last step if that one belongs to the same group too, so i.e. all the
+	 * frames of a drag are undone at once
+	 *
+	 * @param group
+	 */
+	void group(Object group) {
+		if(current!=null) {
+			current.group=group;
+		}
+	}
+
+	/**
+	 * Pushes the changes recorded since {@link #begin(int)}, if there are any, or adds them to the last step if both
+	 * are of the same group. Steps that could be redone are lost.
+	 *
+	 * @param anchor
+	 */
+	void end(int anchor) {
+		Step step=current;
+		current=null;
+		if(step==null || (step.added.isEmpty() && step.removed.isEmpty())) {
+			return;
+		}
+		step.anchorAfter=anchor;
+		while(!redo.isEmpty()) {
+			bytes-=redo.pop().estimatedBytes();
+		}
+		Step last=undo.peek();
+		if(step.group!=null && last!=null && last.group==step.group) {
+			bytes-=last.estimatedBytes();
+			for(IndexRangeSet.Range range : step.added.ranges()) {
+				last.recordAdded(range.from, range.to);
+			}
+			for(IndexRangeSet.Range range : step.removed.ranges()) {
+				last.recordRemoved(range.from, range.to);
+			}
+			last.anchorAfter=anchor;
+			if(last.added.isEmpty() && last.removed.isEmpty()) {
+				undo.pop();
+			} else {
+				bytes+=last.estimatedBytes();
+			}
+		} else {
+			undo.push(step);
+			bytes+=step.estimatedBytes();
+		}
+		while(!undo.isEmpty() && (undo.size() > maxSteps || bytes > maxBytes)) {
+			bytes-=undo.removeLast().estimatedBytes();
+		}
+	}
+
+	/**
+	 * Stops recording the gesture in progress, and moves the last step to the redo stack
+	 *
+	 * @return the step to revert, or null if there is none
+	 */
+	Step undo() {
+		current=null;
+		Step step=undo.poll();
+		if(step!=null) {
+			redo.push(step);
+		}
+		return step;
+	}
+
+	/**
+	 * Stops recording the gesture in progress, and moves the last undone step back to the undo stack
+	 *
+	 * @return the step to apply again, or null if there is none
+	 */
+	Step redo() {
+		current=null;
+		Step step=redo.poll();
+		if(step!=null) {
+			undo.push(step);
+		}
+		return step;
+	}
+
+	boolean canUndo() {
+		return !undo.isEmpty();
+	}
+
+	boolean canRedo() {
+		return !redo.isEmpty();
+	}
+
+	/**
+	 * Drops all the steps, and the one in progress
+	 */
+	void clear() {
+		undo.clear();
+		redo.clear();
+		bytes=0;
+		current=null;
+	}
+
+	/**
+	 * @return the estimated memory used by the steps kept
+	 */
+	long estimatedBytes() {
+		return bytes;
+	}
+
+	/**
+	 * The exact change of a gesture: positions that became selected, positions that were unselected, and the starting
+	 * point for shift operations before and after it
+	 */
+	static final class Step {
+		final IndexRangeSet added=new IndexRangeSet();
+		final IndexRangeSet removed=new IndexRangeSet();
+		final int anchorBefore;
+		int anchorAfter=-1;
+		Object group=null;		//steps of the same group in a row are merged
+
+		Step(int anchorBefore) {
+			this.anchorBefore=anchorBefore;
+		}
+
+		void recordAdded(int from, int to) {
+			record(added, removed, from, to);
+		}
+
+		void recordRemoved(int from, int to) {
+			record(removed, added, from, to);
+		}
+
+		/**
+		 * Positions changing back to what they were before the gesture are taken out of "undone", the rest go to "done"
+		 */
+		private static void record(IndexRangeSet done, IndexRangeSet undone, int from, int to) {
+			List<IndexRangeSet.Range> reverted=undone.ranges(from, to);
+			undone.remove(from, to);
+			done.add(from, to);
+			for(IndexRangeSet.Range range : reverted) {
+				done.remove(range.from, range.to);
+			}
+		}
+
+		long estimatedBytes() {
+			return BYTES_PER_STEP + (long) BYTES_PER_RANGE * (added.rangeCount() + removed.rangeCount());
+		}
+	}
+}
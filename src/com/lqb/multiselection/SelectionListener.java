@@ -0,0 +1,51 @@
+package com.lqb.multiselection;
+
+import java.util.Collection;
+
+/**
+ * Typed listener of a {@link ClickSelection}, called directly with no event objects in between. Extend
+ * {@link SelectionAdapter} to implement only the methods needed.
+ * 
+ * Listeners are called by the thread doing the gesture with the lock held, unless the selection dispatches
+ * asynchronously (see {@link ClickSelection#setAsyncDispatch(java.util.concurrent.Executor)}).
+ * 
+ * @param <T>
+ */
+public interface SelectionListener<T> {
+	/**
+	 * Only with per item events on, see {@link ClickSelection#setPerItemEvents(boolean)}
+	 */
+	void onSelect(T element);
+	
+	/**
+	 * Only with per item events on
+	 */
+	void onUnselect(T element);
+	
+	/**
+	 * Only with per item events on, when a {@link RangeClickSelection} selects a whole range of positions at once
+	 * 
+	 * @param fromIndex never greater than toIndex
+	 * @param toIndex inclusive
+	 */
+	void onSelectRange(int fromIndex, int toIndex);
+	
+	/**
+	 * Only with per item events on
+	 */
+	void onClear();
+	
+	/**
+	 * Once per gesture, with its net change
+	 * 
+	 * @param delta must not be modified
+	 */
+	void onDelta(SelectionDelta delta);
+	
+	/**
+	 * Fired by {@link DoubleClickSelection}
+	 * 
+	 * @param selection the selection when the double click happened
+	 */
+	void onDoubleClick(Collection<T> selection);
+}
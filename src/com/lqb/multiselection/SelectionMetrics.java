@@ -0,0 +1,40 @@
+package com.lqb.multiselection;
+
+/**
+ * Receives measures of what a {@link ClickSelection} does, see {@link ClickSelection#setMetrics(SelectionMetrics)}.
+ * Selections without metrics don't even read the clock.
+ * 
+ * Methods are called from the threads doing gestures and, with async dispatch, from the dispatching one, so
+ * implementations must be thread safe and fast. {@link HistogramSelectionMetrics} keeps them in memory.
+ */
+public interface SelectionMetrics {
+	/**
+	 * Called once per outermost gesture, before releasing the lock
+	 * 
+	 * @param latencyNanos from the gesture call to its end, lock wait included
+	 * @param lockWaitNanos time waiting for the lock
+	 * @param lockHoldNanos time holding the lock, listeners called synchronously included
+	 * @param events number of events posted by the gesture
+	 */
+	void gesture(long latencyNanos, long lockWaitNanos, long lockHoldNanos, int events);
+	
+	/**
+	 * @param width number of positions of a range being selected, by a shift click, selectRange...
+	 */
+	void rangeSelected(int width);
+	
+	/**
+	 * @param nanos time the listeners took to handle an event
+	 */
+	void eventDispatched(long nanos);
+	
+	/**
+	 * A normal click has been delayed, waiting for a possible double click
+	 */
+	void delayedClickScheduled();
+	
+	/**
+	 * A delayed normal click has been run or discarded
+	 */
+	void delayedClickDone();
+}
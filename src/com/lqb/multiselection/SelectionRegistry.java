@@ -0,0 +1,103 @@
+package com.lqb.multiselection;
+
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * The selections of many sessions (users, views...) over one shared collection.
+ * 
+ * Every session gets a {@link RangeClickSelection}, so its selection is kept as ranges of positions and costs memory
+ * by number of ranges, not by number of items. All of them share the collection and a single map from element to
+ * position, which is built once instead of once per session. Each session has its own lock, and the registry itself
+ * is a ConcurrentHashMap, so gestures of different sessions never wait for each other. Sessions nobody listens to don't
+ * create an EventBus either.
+ * 
+ * Changes to the collection must be told to the registry instead of to the sessions, so the shared map is rebuilt and
+ * the positions of every session are kept up to date. Sessions should not be clicked while the collection is changing.
+ * 
+ * @param <T>
+ */
+public class SelectionRegistry<T> {
+	private final List<T> collection;
+	private final SharedIndexResolver<T> resolver;
+	private final ConcurrentMap<Object, RangeClickSelection<T>> sessions=new ConcurrentHashMap<Object, RangeClickSelection<T>>();
+	
+	public SelectionRegistry(List<T> collection) {
+		this.collection=collection;
+		this.resolver=new SharedIndexResolver<T>(collection);
+	}
+	
+	/**
+	 * @param sessionId
+	 * @return the selection of the session, created empty if it didn't exist
+	 */
+	public RangeClickSelection<T> open(Object sessionId) {
+		RangeClickSelection<T> selection=sessions.get(sessionId);
+		if(selection==null) {
+			RangeClickSelection<T> created=new RangeClickSelection<T>(collection, resolver);
+			selection=sessions.putIfAbsent(sessionId, created);
+			if(selection==null) {
+				selection=created;
+			}
+		}
+		return selection;
+	}
+	
+	/**
+	 * @param sessionId
+	 * @return the selection of the session, or null if it is not open
+	 */
+	public RangeClickSelection<T> get(Object sessionId) {
+		return sessions.get(sessionId);
+	}
+	
+	/**
+	 * @param sessionId
+	 * @return the selection the session had, or null if it was not open
+	 */
+	public RangeClickSelection<T> close(Object sessionId) {
+		return sessions.remove(sessionId);
+	}
+	
+	public int sessionCount() {
+		return sessions.size();
+	}
+	
+	/**
+	 * @see ClickSelection#itemsInserted(int, int)
+	 */
+	public void itemsInserted(int index, int count) {
+		resolver.invalidate();
+		for(RangeClickSelection<T> selection : sessions.values()) {
+			selection.itemsInserted(index, count);
+		}
+	}
+	
+	/**
+	 * @see RangeClickSelection#itemsRemoved(int, int)
+	 */
+	public void itemsRemoved(int index, int count) {
+		resolver.invalidate();
+		for(RangeClickSelection<T> selection : sessions.values()) {
+			selection.itemsRemoved(index, count);
+		}
+	}
+	
+	/**
+	 * @see ClickSelection#itemMoved(int, int)
+	 */
+	public void itemMoved(int from, int to) {
+		resolver.invalidate();
+		for(RangeClickSelection<T> selection : sessions.values()) {
+			selection.itemMoved(from, to);
+		}
+	}
+	
+	/**
+	 * To be called when the collection changed in a way that doesn't move positions, i.e. List.set
+	 */
+	public void itemsChanged() {
+		resolver.invalidate();
+	}
+}
@@ -0,0 +1,38 @@
+package com.lqb.multiselection;
+
+import java.util.AbstractSet;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.Set;
+
+/**
+ * An immutable view of a selection at some point in time. It can be iterated from any thread without locking, and it
+ * will not change, no matter what happens later to the selection it comes from.
+ * 
+ * @param <T>
+ */
+public class SelectionSnapshot<T> extends AbstractSet<T> {
+	private final Set<T> elements;
+	
+	/**
+	 * @param elements nobody must modify it from now on
+	 */
+	SelectionSnapshot(Set<T> elements) {
+		this.elements=Collections.unmodifiableSet(elements);
+	}
+	
+	@Override
+	public boolean contains(Object o) {
+		return elements.contains(o);
+	}
+	
+	@Override
+	public int size() {
+		return elements.size();
+	}
+	
+	@Override
+	public Iterator<T> iterator() {
+		return elements.iterator();
+	}
+}
@@ -0,0 +1,22 @@
+package com.lqb.multiselection;
+
+/**
+ * The items a {@link ClickSelection} selects from, when they are not a List in memory. i.e. rows paged from disk.
+ * 
+ * Selections only ask for the items they really need: {@link RangeClickSelection} reads the clicked item and the
+ * selected ones when iterated, never the items in between of a range.
+ * 
+ * @param <T>
+ */
+public interface SelectionSource<T> extends IndexResolver<T> {
+	/**
+	 * @return the number of items
+	 */
+	int size();
+	
+	/**
+	 * @param index
+	 * @return the item at that position
+	 */
+	T keyAt(int index);
+}
@@ -1,58 +1,215 @@
 package com.lqb.multiselection;
 
+import java.util.Collections;
 import java.util.HashSet;
 import java.util.Iterator;
+import java.util.LinkedHashSet;
 import java.util.Set;
 import java.util.concurrent.locks.ReentrantLock;
 
 /**
  * A very basic selection class, that providers select, unselect and toggle functions with events.
- * 
+ *
+ * {@link #snapshot()} shares the current Set instead of copying it. The copy is done by the next change, and only if
+ * there is a snapshot still sharing it. So the snapshot is O(1), but that change is O(size).
+ *
+ * In read optimized mode (see {@link #setReadOptimized(boolean)}) a snapshot is published every time the outermost
+ * lock is released after a change, and other threads read that snapshot without locking.
+ *
  * @param <T>
  */
 class SetSelection<T> implements Iterable<T> {
-	private Set<T> elements=new HashSet<T>();
+	private Set<T> elements=Collections.emptySet();		//shared empty set until the first change, unused by subclasses keeping their own structure
+	private SelectionSnapshot<T> snapshot=null;		//snapshot sharing "elements", if any
 	protected ReentrantLock lock=new ReentrantLock();
+	private volatile boolean readOptimized=false;
+	private volatile SelectionSnapshot<T> published;	//only up to date in read optimized mode
+	private boolean changed=false;
 
 	/**
 	 * adds an item to the selection.
-	 * 
+	 *
 	 * @param element
 	 * @return true if it was not selected before
 	 */
 	public boolean select(T element) {
-		lock.lock();
+		lockForChange();
 		try {
+			if(elements.contains(element)) {
+				return false;
+			}
+			beforeChange();
 			return elements.add(element);
 		} finally {
-			lock.unlock();
+			unlock();
 		}
 	}
-	
+
 	/**
 	 * Unselects the item if it is selected. If not, nothing happens
-	 * 
+	 *
 	 * @param element
 	 * @return true if it existed and was unselected
 	 */
 	public boolean unselect(T element) {
-		lock.lock();
+		lockForChange();
 		try {
+			if(!elements.contains(element)) {
+				return false;
+			}
+			beforeChange();
 			return elements.remove(element);
 		} finally {
-			lock.unlock();
+			unlock();
 		}
 	}
-	
+
 	public void toggle(T element) {
-		if(elements.contains(element)) {
-			unselect(element);
-		} else {
-			select(element);
+		lockForChange();
+		try {
+			if(elements.contains(element)) {
+				unselect(element);
+			} else {
+				select(element);
+			}
+		} finally {
+			unlock();
 		}
 	}
-	
+
+	/**
+	 * Selects every item of other
+	 *
+	 * @param other i.e. another selection, read through a snapshot
+	 * @return true if something changed
+	 */
+	public boolean union(Iterable<? extends T> other) {
+		Iterable<? extends T> items=snapshotOf(other);
+		lockForChange();
+		try {
+			return !addAllInternal(items).isEmpty();
+		} finally {
+			unlock();
+		}
+	}
+
+	/**
+	 * Keeps selected only the items that are in other too
+	 *
+	 * @param other i.e. another selection, read through a snapshot
+	 * @return true if something changed
+	 */
+	public boolean intersect(Iterable<? extends T> other) {
+		Set<?> keep=setOf(other);
+		lockForChange();
+		try {
+			return !retainAllInternal(keep).isEmpty();
+		} finally {
+			unlock();
+		}
+	}
+
+	/**
+	 * Unselects every item of other
+	 *
+	 * @param other i.e. another selection, read through a snapshot
+	 * @return true if something changed
+	 */
+	public boolean subtract(Iterable<? extends T> other) {
+		Iterable<? extends T> items=snapshotOf(other);
+		lockForChange();
+		try {
+			return !removeAllInternal(items).isEmpty();
+		} finally {
+			unlock();
+		}
+	}
+
+	/**
+	 * Must be called with the lock held
+	 *
+	 * @param items
+	 * @return the items that were not selected before, in the order they were given
+	 */
+	protected Set<T> addAllInternal(Iterable<? extends T> items) {
+		Set<T> res=new LinkedHashSet<T>();
+		for(T element : items) {
+			if(!elements.contains(element)) {
+				beforeChange();
+				elements.add(element);
+				res.add(element);
+			}
+		}
+		return res;
+	}
+
+	/**
+	 * Must be called with the lock held
+	 *
+	 * @param keep
+	 * @return the selected items that were not in keep, and so have been unselected
+	 */
+	protected Set<T> retainAllInternal(Set<?> keep) {
+		Set<T> res=new LinkedHashSet<T>();
+		for(T element : elements) {
+			if(!keep.contains(element)) {
+				res.add(element);
+			}
+		}
+		if(!res.isEmpty()) {
+			beforeChange();
+			elements.removeAll(res);
+		}
+		return res;
+	}
+
+	/**
+	 * Must be called with the lock held
+	 *
+	 * @param items
+	 * @return the items that were selected, and have been unselected, in the order they were given
+	 */
+	protected Set<T> removeAllInternal(Iterable<? extends T> items) {
+		Set<T> res=new LinkedHashSet<T>();
+		for(T element : items) {
+			if(elements.contains(element)) {
+				beforeChange();
+				elements.remove(element);
+				res.add(element);
+			}
+		}
+		return res;
+	}
+
+	/**
+	 * Takes what is needed from other before locking this selection, so two selections combined with each other
+	 * from different threads can't deadlock
+	 */
+	static <E> Iterable<? extends E> snapshotOf(Iterable<? extends E> other) {
+		if(other instanceof SetSelection<?>) {
+			return ((SetSelection<? extends E>) other).snapshot();
+		}
+		return other;
+	}
+
+	static Set<?> setOf(Iterable<?> other) {
+		if(other instanceof SetSelection<?>) {
+			return ((SetSelection<?>) other).snapshot();
+		} else if(other instanceof Set<?>) {
+			return (Set<?>) other;
+		}
+		Set<Object> res=new HashSet<Object>();
+		for(Object element : other) {
+			res.add(element);
+		}
+		return res;
+	}
+
 	public boolean isSelected(T element) {
+		SelectionSnapshot<T> view=publishedView();
+		if(view!=null) {
+			return view.contains(element);
+		}
 		lock.lock();
 		try {
 			return elements.contains(element);
@@ -60,17 +217,29 @@ class SetSelection<T> implements Iterable<T> {
 			lock.unlock();
 		}
 	}
-	
+
 	public void clearSelection() {
-		lock.lock();
+		lockForChange();
 		try {
-			elements.clear();
+			if(!elements.isEmpty()) {
+				changed=true;
+				if(snapshot!=null) {
+					elements=Collections.emptySet();
+					snapshot=null;
+				} else {
+					elements.clear();
+				}
+			}
 		} finally {
-			lock.unlock();
+			unlock();
 		}
 	}
-	
+
 	public int size() {
+		SelectionSnapshot<T> view=publishedView();
+		if(view!=null) {
+			return view.size();
+		}
 		lock.lock();
 		try {
 			return elements.size();
@@ -78,13 +247,122 @@ class SetSelection<T> implements Iterable<T> {
 			lock.unlock();
 		}
 	}
-	
+
+	/**
+	 * Iterates a {@link #snapshot()}, so it is safe to change the selection meanwhile
+	 */
 	@Override
 	public Iterator<T> iterator() {
-		return elements.iterator();
+		return snapshot().iterator();
 	}
-	
+
+	/**
+	 * @return a modifiable copy of the selection. Use {@link #snapshot()} if you don't need to modify it
+	 */
 	public Set<T> elements() {
-		return new HashSet<T>(elements);
+		return new HashSet<T>(snapshot());
+	}
+
+	/**
+	 * @return an immutable view of the current selection. This is O(1), it shares the selection until the next change
+	 */
+	public SelectionSnapshot<T> snapshot() {
+		SelectionSnapshot<T> view=publishedView();
+		if(view!=null) {
+			return view;
+		}
+		lock.lock();
+		try {
+			return snapshotInternal();
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	private SelectionSnapshot<T> snapshotInternal() {
+		if(snapshot==null) {
+			snapshot=new SelectionSnapshot<T>(elements);
+		}
+		return snapshot;
+	}
+
+	/**
+	 * @param readOptimized true to let isSelected, size, iterator, elements and snapshot read the last published selection
+	 * 			without locking. Writers still take the lock, and pay a copy of the selection on the first change after
+	 * 			every publication (once per gesture in {@link ClickSelection}). The thread holding the lock always reads
+	 * 			the current state.
+	 */
+	public void setReadOptimized(boolean readOptimized) {
+		lock.lock();
+		try {
+			//readers check the flag first, so it is never on while "published" is null
+			if(readOptimized) {
+				published=snapshotInternal();
+				this.readOptimized=true;
+			} else {
+				this.readOptimized=false;
+				published=null;
+			}
+			changed=false;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	public boolean isReadOptimized() {
+		return readOptimized;
+	}
+
+	/**
+	 * @return the selection to read without locking, or null if the lock must be taken. Callers must read it once, as
+	 * 			the mode can be turned off meanwhile
+	 */
+	private SelectionSnapshot<T> publishedView() {
+		return (readOptimized && !lock.isHeldByCurrentThread()) ? published : null;
+	}
+
+	/**
+	 * Must be called with the lock held before modifying "elements"
+	 */
+	private void beforeChange() {
+		changed=true;
+		if(snapshot!=null || elements==Collections.emptySet()) {
+			elements=new HashSet<T>(elements);
+			snapshot=null;
+		}
+	}
+
+	/**
+	 * Releases the lock, publishing the selection first if this is the outermost hold and something changed
+	 */
+	protected void unlock() {
+		try {
+			if(lock.getHoldCount()==1) {
+				publishChanges();
+			}
+		} finally {
+			lock.unlock();
+		}
+	}
+	
+	/**
+	 * Takes the lock for select, unselect, toggle or clearSelection. Subclasses forget here any state those changes
+	 * make stale
+	 */
+	protected void lockForChange() {
+		lock.lock();
+	}
+	
+	/**
+	 * Called by the outermost {@link #unlock()}, with the lock held. Subclasses keeping the selection in a structure of
+	 * their own publish it here too.
+	 */
+	protected void publishChanges() {
+		if(changed) {
+			changed=false;
+			if(readOptimized) {
+				published=snapshotInternal();
+			}
+		}
 	}
 }
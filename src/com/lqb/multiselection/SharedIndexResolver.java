@@ -0,0 +1,56 @@
+package com.lqb.multiselection;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.ListIterator;
+import java.util.Map;
+
+/**
+ * An {@link IndexResolver} that many selections can use at the same time, each one with its own lock. Lookups read an
+ * immutable map from element to position without locking. The map is built once, and built again on the first
+ * lookup after {@link #invalidate()}.
+ * 
+ * @param <T>
+ */
+class SharedIndexResolver<T> implements IndexResolver<T> {
+	private final List<T> collection;
+	private volatile Map<T, Integer> positions=null;		//never modified once published, null to build it again
+	
+	SharedIndexResolver(List<T> collection) {
+		this.collection=collection;
+	}
+	
+	@Override
+	public int indexOf(T element) {
+		Map<T, Integer> map=positions;
+		if(map==null) {
+			map=build();
+		}
+		Integer index=map.get(element);
+		return index==null ? -1 : index;
+	}
+	
+	/**
+	 * Must be called after every change of the collection
+	 */
+	void invalidate() {
+		positions=null;
+	}
+	
+	private synchronized Map<T, Integer> build() {
+		Map<T, Integer> map=positions;
+		if(map==null) {
+			map=new HashMap<T, Integer>(collection.size() * 4 / 3 + 1);
+			ListIterator<T> li=collection.listIterator();
+			while(li.hasNext()) {
+				int index=li.nextIndex();
+				T element=li.next();
+				if(!map.containsKey(element)) {
+					map.put(element, index);
+				}
+			}
+			positions=map;
+		}
+		return map;
+	}
+}
@@ -0,0 +1,42 @@
+package com.lqb.multiselection;
+
+import java.util.AbstractList;
+import java.util.RandomAccess;
+
+/**
+ * A read only List view of a {@link SelectionSource}, so selections can work on it as they do on any other List.
+ * Nothing is loaded until asked for.
+ * 
+ * @param <T>
+ */
+class SourceList<T> extends AbstractList<T> implements RandomAccess {
+	private final SelectionSource<T> source;
+	
+	SourceList(SelectionSource<T> source) {
+		this.source=source;
+	}
+	
+	@Override
+	public T get(int index) {
+		if(index<0 || index>=source.size()) {
+			throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + source.size());
+		}
+		return source.keyAt(index);
+	}
+	
+	@Override
+	public int size() {
+		return source.size();
+	}
+	
+	@SuppressWarnings("unchecked")
+	@Override
+	public int indexOf(Object o) {
+		return source.indexOf((T) o);
+	}
+	
+	@Override
+	public boolean contains(Object o) {
+		return indexOf(o)>=0;
+	}
+}
@@ -0,0 +1,254 @@
+package com.lqb.multiselection;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A hashed timer wheel: a single daemon thread running the timeouts of any number of selections, see
+ * {@link #shared()}.
+ * 
+ * Time is cut in ticks, and timeouts are linked into the bucket of the tick they are due at, so scheduling and
+ * cancelling cost O(1) and timeouts fire up to one tick late. Timeouts are the linked list nodes themselves, so a
+ * {@link Timeout} can be scheduled again and again without allocating anything.
+ * 
+ * The thread is started by the first timeout scheduled, and stops once the wheel has been empty for a while, so
+ * nothing needs to be shut down.
+ */
+class TimerWheel {
+	private static final TimerWheel SHARED=new TimerWheel("TimerWheel-shared", 10, TimeUnit.MILLISECONDS, 64, 1, TimeUnit.SECONDS);
+	
+	private final String name;		//of the thread
+	private final long tickNanos;
+	private final Timeout[] buckets;		//head of the list of timeouts of every bucket
+	private final long idleNanos;
+	private final long startTime=System.nanoTime();
+	private long tick=0;		//next tick to process, counted from startTime
+	private int pending=0;		//timeouts scheduled
+	private Thread thread=null;		//null when stopped
+	
+	/**
+	 * @return the wheel used by default, with a 10ms tick
+	 */
+	static TimerWheel shared() {
+		return SHARED;
+	}
+	
+	/**
+	 * @param tick duration of a tick, the precision of the timeouts
+	 * @param tickUnit
+	 * @param size number of buckets, a power of two. Timeouts further than size ticks away stay linked while the
+	 * 			wheel turns, so size * tick should be above the usual delays
+	 * @param idle how long the thread waits without timeouts before stopping
+	 * @param idleUnit
+	 */
+	TimerWheel(long tick, TimeUnit tickUnit, int size, long idle, TimeUnit idleUnit) {
+		this("TimerWheel", tick, tickUnit, size, idle, idleUnit);
+	}
+	
+	/**
+	 * Same as {@link #TimerWheel(long, TimeUnit, int, long, TimeUnit)}, naming the thread
+	 */
+	TimerWheel(String name, long tick, TimeUnit tickUnit, int size, long idle, TimeUnit idleUnit) {
+		if(Integer.bitCount(size)!=1) {
+			throw new IllegalArgumentException("The size must be a power of two: " + size);
+		}
+		this.name=name;
+		this.tickNanos=tickUnit.toNanos(tick);
+		this.buckets=new Timeout[size];
+		this.idleNanos=idleUnit.toNanos(idle);
+	}
+	
+	/**
+	 * Schedules timeout to run after the delay, from the timer thread. If it was already scheduled, the previous
+	 * schedule is cancelled.
+	 * 
+	 * @param timeout
+	 * @param delay
+	 * @param unit
+	 */
+	void schedule(Timeout timeout, long delay, TimeUnit unit) {
+		schedule(timeout, delay, unit, null);
+	}
+	
+	/**
+	 * Same as {@link #schedule(Timeout, long, TimeUnit)}, but the timer thread hands the timeout to runOn instead of
+	 * running it
+	 * 
+	 * @param timeout
+	 * @param delay
+	 * @param unit
+	 * @param runOn i.e. an event loop. null to run it from the timer thread
+	 */
+	synchronized void schedule(Timeout timeout, long delay, TimeUnit unit, Executor runOn) {
+		long now=System.nanoTime();
+		if(timeout.wheel!=null) {
+			timeout.wheel.cancel(timeout);
+		}
+		if(thread==null) {
+			tick=(now - startTime) / tickNanos;
+			start();
+		}
+		long due=(now - startTime + unit.toNanos(delay) + tickNanos - 1) / tickNanos;
+		timeout.dueTick=Math.max(due, tick);
+		timeout.wheel=this;
+		timeout.expired=false;
+		timeout.runOn=runOn;
+		int bucket=(int) (timeout.dueTick & (buckets.length - 1));
+		timeout.prev=null;
+		timeout.next=buckets[bucket];
+		if(timeout.next!=null) {
+			timeout.next.prev=timeout;
+		}
+		buckets[bucket]=timeout;
+		pending++;
+	}
+	
+	/**
+	 * @param timeout
+	 * @return true if it was scheduled in this wheel. It will not run, unless it is already running
+	 */
+	boolean cancel(Timeout timeout) {
+		synchronized(this) {
+			timeout.expired=false;
+			if(timeout.wheel!=this) {
+				return false;
+			}
+			unlink(timeout);
+			return true;
+		}
+	}
+	
+	synchronized boolean isRunning() {
+		return thread!=null;
+	}
+	
+	private void start() {
+		thread=new Thread(new Runnable() {
+			@Override
+			public void run() {
+				turn();
+			}
+		}, name);
+		thread.setDaemon(true);
+		thread.start();
+	}
+	
+	private void unlink(Timeout timeout) {
+		if(timeout.prev!=null) {
+			timeout.prev.next=timeout.next;
+		} else {
+			buckets[(int) (timeout.dueTick & (buckets.length - 1))]=timeout.next;
+		}
+		if(timeout.next!=null) {
+			timeout.next.prev=timeout.prev;
+		}
+		timeout.prev=null;
+		timeout.next=null;
+		timeout.wheel=null;
+		pending--;
+	}
+	
+	/**
+	 * Body of the timer thread. However it ends, the wheel can be started again, and it is right away if timeouts are
+	 * still scheduled
+	 */
+	private void turn() {
+		try {
+			loop();
+		} finally {
+			synchronized(this) {
+				if(thread==Thread.currentThread()) {
+					thread=null;
+					if(pending > 0) {
+						start();
+					}
+				}
+			}
+		}
+	}
+	
+	private void loop() {
+		long idleSince=-1;
+		while(true) {
+			Timeout expired=null;		//chained through "nextExpired"
+			synchronized(this) {
+				long now=System.nanoTime();
+				while(startTime + tick * tickNanos <= now) {
+					int bucket=(int) (tick & (buckets.length - 1));
+					Timeout timeout=buckets[bucket];
+					while(timeout!=null) {
+						Timeout next=timeout.next;
+						if(timeout.dueTick<=tick) {
+							unlink(timeout);
+							timeout.expired=true;
+							timeout.nextExpired=expired;
+							expired=timeout;
+						}
+						timeout=next;
+					}
+					tick++;
+				}
+				if(expired==null && pending==0) {
+					if(idleSince < 0) {
+						idleSince=now;
+					} else if(now - idleSince>=idleNanos) {
+						thread=null;
+						return;
+					}
+				} else {
+					idleSince=-1;
+				}
+				if(expired==null) {
+					long wait=startTime + tick * tickNanos - now;
+					try {
+						wait(wait / 1000000, (int) (wait % 1000000));
+					} catch(InterruptedException e) {
+						return;
+					}
+				}
+			}
+			while(expired!=null) {
+				Timeout timeout=expired;
+				expired=timeout.nextExpired;
+				timeout.nextExpired=null;
+				Executor runOn;
+				synchronized(this) {
+					if(!timeout.expired) {
+						continue;		//cancelled or scheduled again meanwhile
+					}
+					timeout.expired=false;
+					runOn=timeout.runOn;
+				}
+				try {
+					if(runOn!=null) {
+						runOn.execute(timeout);
+					} else {
+						timeout.run();
+					}
+				} catch(Throwable e) {		//an Error from one timeout must not stop the others
+					Thread current=Thread.currentThread();
+					current.getUncaughtExceptionHandler().uncaughtException(current, e);
+				}
+			}
+		}
+	}
+	
+	/**
+	 * Something to run when its time comes. The same instance can be scheduled again once it has run or been
+	 * cancelled, or even while it is scheduled, to move it.
+	 * 
+	 * A timeout cancelled or scheduled again right when it expires may still run once, so run() should check it is
+	 * really due.
+	 */
+	abstract static class Timeout implements Runnable {
+		private TimerWheel wheel=null;		//where it is scheduled, null if it isn't
+		private long dueTick;
+		private Timeout prev;
+		private Timeout next;
+		private boolean expired=false;		//waiting to be run by the timer thread
+		private Timeout nextExpired;		//only used by the timer thread
+		private Executor runOn;
+		ScheduledFuture<?> future;		//only used by ClickScheduler.of
+	}
+}
@@ -0,0 +1,75 @@
+package com.lqb.multiselection;
+
+/**
+ * A {@link RangeClickSelection} over the nodes of a tree, where clicking a node clicks its whole subtree:
+ * <ul>
+ * <li>normalClick selects the node and all its descendants, and unselects them if they were the only ones selected</li>
+ * <li>ctrlClick unselects the subtree if it is fully selected, and selects it otherwise</li>
+ * <li>shiftClick selects every node in pre-order between the anchor and the clicked one, with the subtree of the last
+ * one of both included</li>
+ * </ul>
+ *
+ * As subtrees are contiguous ranges in pre-order, each of these costs O(log n), no matter how many nodes the subtree
+ * has, and the nodes in between are never read.
+ *
+ * @param <T>
+ */
+public class TreeClickSelection<T> extends RangeClickSelection<T> {
+	private final TreeSource<T> tree;
+
+	public TreeClickSelection(TreeSource<T> tree) {
+		super(tree);
+		this.tree=tree;
+	}
+
+	/**
+	 * Adds the node at index and all its descendants to the selection, keeping the rest of it and the anchor.
+	 *
+	 * @param index position of the root of the subtree
+	 */
+	public void selectSubtree(int index) {
+		beginGesture();
+		try {
+			if(index>=0 && index<collection.size()) {
+				selectRangeInternal(index, extentOf(index));
+			}
+		} finally {
+			endGesture();
+		}
+	}
+
+	/**
+	 * Removes the node at index and all its descendants from the selection, keeping the rest of it and the anchor.
+	 *
+	 * @param index position of the root of the subtree
+	 */
+	public void unselectSubtree(int index) {
+		beginGesture();
+		try {
+			if(index>=0 && index<collection.size()) {
+				unselectRangeInternal(index, extentOf(index));
+			}
+		} finally {
+			endGesture();
+		}
+	}
+
+	/**
+	 * @param index position of the root of the subtree
+	 * @return true if the node and all its descendants are selected
+	 */
+	public boolean isSubtreeSelected(int index) {
+		lock.lock();
+		try {
+			return index>=0 && index<collection.size() && isRangeSelected(index, extentOf(index));
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	@Override
+	protected int extentOf(int index) {
+		int size=tree.subtreeSize(index);
+		return size<=1 ? index : Math.min(collection.size() - 1, index + size - 1);
+	}
+}
@@ -0,0 +1,19 @@
+package com.lqb.multiselection;
+
+/**
+ * The nodes of a tree, as a {@link SelectionSource} in pre-order (depth first, parents before their children). Every
+ * subtree is then a contiguous run of positions, starting at its root.
+ *
+ * Collapsed branches keep their positions: expanding or collapsing a node doesn't change the order.
+ *
+ * @param <T>
+ */
+public interface TreeSource<T> extends SelectionSource<T> {
+	/**
+	 * Should be O(1), i.e. kept along with the pre-order positions, as it is asked on every click.
+	 *
+	 * @param index position of a node
+	 * @return the number of nodes in its subtree, itself included. 1 for leaves
+	 */
+	int subtreeSize(int index);
+}
@@ -0,0 +1,17 @@
+package com.lqb.multiselection.events;
+
+/**
+ * An event thrown when a whole range of positions of the collection has been selected at once, instead of one
+ * {@link SelectClickEvent} per item. Both indexes are inclusive and fromIndex is never greater than toIndex.
+ * 
+ * @param <T>
+ */
+public class RangeSelectClickEvent<T> extends ClickEvent<T> {
+	public final int fromIndex;
+	public final int toIndex;
+	public RangeSelectClickEvent(Object source, int fromIndex, int toIndex) {
+		super(source);
+		this.fromIndex=fromIndex;
+		this.toIndex=toIndex;
+	}
+}
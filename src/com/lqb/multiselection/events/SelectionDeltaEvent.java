@@ -0,0 +1,27 @@
+package com.lqb.multiselection.events;
+
+import com.lqb.multiselection.IndexRangeSet;
+import com.lqb.multiselection.SelectionDelta;
+
+/**
+ * An event thrown once per gesture with the net change of the selection, as positions of the collection.
+ * 
+ * To bring a copy of the selection up to date: clear it if "cleared", then unselect "removed", then select "added".
+ * Positions are those the collection had when the event was fired, and changes to the collection (itemsInserted,
+ * itemsRemoved, itemMoved) are not part of the delta: a copy kept across them must be shifted the same way by its
+ * owner, i.e. with {@link IndexRangeSet#insert(int, int)} and {@link IndexRangeSet#delete(int, int)}.
+ * The ranges must not be modified.
+ * 
+ * @param <T>
+ */
+public class SelectionDeltaEvent<T> extends ClickEvent<T> {
+	public final boolean cleared;
+	public final IndexRangeSet added;
+	public final IndexRangeSet removed;
+	public SelectionDeltaEvent(Object source, SelectionDelta delta) {
+		super(source);
+		this.cleared=delta.isCleared();
+		this.added=delta.added();
+		this.removed=delta.removed();
+	}
+}
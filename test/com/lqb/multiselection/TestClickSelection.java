@@ -1,14 +1,26 @@
 package com.lqb.multiselection;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
 
+import java.awt.event.InputEvent;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.Iterator;
 import java.util.List;
+import java.util.TreeSet;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.junit.Before;
 import org.junit.Test;
 
+import com.google.common.eventbus.Subscribe;
+import com.lqb.multiselection.events.SelectClickEvent;
+import com.lqb.multiselection.events.SelectionDeltaEvent;
+
 public class TestClickSelection {
 	private List<Integer> listInteger;
 	private ClickSelection<Integer> clickSelection;
@@ -316,4 +328,529 @@ public class TestClickSelection {
 		assertEquals(4, (int) ite.next());
 		assertEquals(5, (int) ite.next());
 	}
+	
+	@Test
+	public void testShiftClickAt() {
+		listInteger.add(1);
+		listInteger.add(2);
+		listInteger.add(3);
+		listInteger.add(4);
+		clickSelection.normalClickAt(3);
+		clickSelection.shiftClickAt(1);
+		assertEquals(3, clickSelection.size());
+		Iterator<Integer> ite=clickSelection.iterator();
+		assertEquals(2, (int) ite.next());
+		assertEquals(3, (int) ite.next());
+		assertEquals(4, (int) ite.next());
+	}
+	
+	@Test
+	public void testShiftWithHashIndexResolver() {
+		clickSelection=new ClickSelection<Integer>(listInteger, new HashIndexResolver<Integer>(listInteger));
+		listInteger.add(1);
+		listInteger.add(2);
+		listInteger.add(3);
+		clickSelection.normalClick(3);
+		listInteger.add(0, 0);
+		clickSelection.shiftClick(1);
+		assertEquals(3, clickSelection.size());
+		Iterator<Integer> ite=clickSelection.iterator();
+		assertEquals(1, (int) ite.next());
+		assertEquals(2, (int) ite.next());
+		assertEquals(3, (int) ite.next());
+	}
+	
+	@Test
+	public void testOneDeltaEventPerGesture() {
+		final List<SelectionDeltaEvent<Integer>> events=new ArrayList<SelectionDeltaEvent<Integer>>();
+		final AtomicInteger perItemEvents=new AtomicInteger();
+		clickSelection.addListener(new Object() {
+			@Subscribe
+			public void onDelta(SelectionDeltaEvent<Integer> event) {
+				events.add(event);
+			}
+			
+			@Subscribe
+			public void onSelect(SelectClickEvent<Integer> event) {
+				perItemEvents.incrementAndGet();
+			}
+		});
+		listInteger.add(1);
+		listInteger.add(2);
+		listInteger.add(3);
+		listInteger.add(4);
+		clickSelection.normalClick(1);
+		clickSelection.shiftClick(4);
+		clickSelection.ctrlClick(2);
+		assertEquals(3, events.size());
+		assertEquals(0, perItemEvents.get());
+		assertTrue(events.get(1).cleared);
+		assertEquals("[0-3]", events.get(1).added.toString());
+		assertFalse(events.get(2).cleared);
+		assertEquals("[1]", events.get(2).removed.toString());
+		assertTrue(events.get(2).added.isEmpty());
+	}
+	
+	@Test
+	public void testPerItemEvents() {
+		final AtomicInteger perItemEvents=new AtomicInteger();
+		clickSelection.addListener(new Object() {
+			@Subscribe
+			public void onSelect(SelectClickEvent<Integer> event) {
+				perItemEvents.incrementAndGet();
+			}
+		});
+		clickSelection.setPerItemEvents(true);
+		listInteger.add(1);
+		listInteger.add(2);
+		listInteger.add(3);
+		clickSelection.shiftClick(3);
+		assertEquals(3, perItemEvents.get());
+	}
+	
+	@Test
+	public void testAsyncDispatchCoalesces() {
+		final List<Runnable> tasks=new ArrayList<Runnable>();
+		final List<SelectionDeltaEvent<Integer>> events=new ArrayList<SelectionDeltaEvent<Integer>>();
+		clickSelection.setAsyncDispatch(new Executor() {
+			@Override
+			public void execute(Runnable command) {
+				tasks.add(command);
+			}
+		});
+		clickSelection.addListener(new Object() {
+			@Subscribe
+			public void onDelta(SelectionDeltaEvent<Integer> event) {
+				events.add(event);
+			}
+		});
+		listInteger.add(1);
+		listInteger.add(2);
+		listInteger.add(3);
+		listInteger.add(4);
+		clickSelection.normalClick(1);
+		clickSelection.shiftClick(3);
+		clickSelection.ctrlClick(2);
+		clickSelection.ctrlClick(4);
+		assertEquals(0, events.size());
+		assertEquals(1, tasks.size());
+		tasks.get(0).run();
+		assertEquals(1, events.size());
+		assertTrue(events.get(0).cleared);
+		assertEquals("[0, 2-3]", events.get(0).added.toString());
+	}
+	
+	@Test
+	public void testSelectAllAndInvert() {
+		final List<SelectionDeltaEvent<Integer>> events=new ArrayList<SelectionDeltaEvent<Integer>>();
+		clickSelection.addListener(new Object() {
+			@Subscribe
+			public void onDelta(SelectionDeltaEvent<Integer> event) {
+				events.add(event);
+			}
+		});
+		listInteger.add(1);
+		listInteger.add(2);
+		listInteger.add(3);
+		listInteger.add(4);
+		clickSelection.selectAll();
+		assertEquals(4, clickSelection.size());
+		assertEquals(1, events.size());
+		clickSelection.ctrlClick(2);
+		clickSelection.invertSelection();
+		assertEquals(1, clickSelection.size());
+		assertTrue(clickSelection.isSelected(2));
+		assertEquals(3, events.size());
+		assertEquals("[0, 2-3]", events.get(2).removed.toString());
+		assertEquals("[1]", events.get(2).added.toString());
+		clickSelection.selectNone();
+		assertEquals(0, clickSelection.size());
+		assertTrue(events.get(3).cleared);
+	}
+	
+	@Test
+	public void testSelectRange() {
+		listInteger.add(1);
+		listInteger.add(2);
+		listInteger.add(3);
+		listInteger.add(4);
+		clickSelection.normalClick(1);
+		clickSelection.selectRange(2, 10);
+		assertEquals(3, clickSelection.size());
+		Iterator<Integer> ite=clickSelection.iterator();
+		assertEquals(1, (int) ite.next());
+		assertEquals(3, (int) ite.next());
+		assertEquals(4, (int) ite.next());
+		clickSelection.shiftClick(2);
+		assertEquals(2, clickSelection.size());
+	}
+	
+	@Test
+	public void testItemsRemoved() {
+		listInteger.add(1);
+		listInteger.add(2);
+		listInteger.add(3);
+		clickSelection.normalClick(2);
+		clickSelection.shiftClick(3);
+		listInteger.remove(1);
+		clickSelection.itemsRemoved(1, Collections.singletonList(2));
+		assertEquals(1, clickSelection.size());
+		assertTrue(clickSelection.isSelected(3));
+		clickSelection.shiftClick(3);
+		assertEquals(2, clickSelection.size());
+	}
+	
+	@Test
+	public void testUndoRedo() {
+		for(int i=1; i<=5; i++) {
+			listInteger.add(i);
+		}
+		clickSelection.setUndoLimit(10, Long.MAX_VALUE);
+		clickSelection.normalClick(2);
+		clickSelection.ctrlClick(4);
+		clickSelection.normalClick(5);
+		assertEquals(1, clickSelection.size());
+		assertTrue(clickSelection.undo());
+		assertEquals(2, clickSelection.size());
+		assertTrue(clickSelection.isSelected(2));
+		assertTrue(clickSelection.isSelected(4));
+		clickSelection.shiftClick(2);
+		assertEquals(3, clickSelection.size());
+		assertFalse(clickSelection.canRedo());
+		assertTrue(clickSelection.undo());
+		assertTrue(clickSelection.undo());
+		assertEquals(1, clickSelection.size());
+		assertTrue(clickSelection.redo());
+		assertTrue(clickSelection.isSelected(4));
+		clickSelection.shiftClick(5);
+		assertEquals(2, clickSelection.size());
+		assertTrue(clickSelection.isSelected(5));
+	}
+	
+	@Test
+	public void testUndoLimit() {
+		for(int i=1; i<=5; i++) {
+			listInteger.add(i);
+		}
+		assertFalse(clickSelection.undo());
+		clickSelection.setUndoLimit(2, Long.MAX_VALUE);
+		clickSelection.ctrlClick(1);
+		clickSelection.ctrlClick(2);
+		clickSelection.ctrlClick(3);
+		assertTrue(clickSelection.undo());
+		assertTrue(clickSelection.undo());
+		assertFalse(clickSelection.undo());
+		assertEquals(1, clickSelection.size());
+		clickSelection.setUndoLimit(10, 1);
+		clickSelection.ctrlClick(4);
+		assertFalse(clickSelection.canUndo());
+	}
+	
+	@Test
+	public void testUndoDroppedOnCollectionChange() {
+		listInteger.add(1);
+		listInteger.add(2);
+		clickSelection.setUndoLimit(10, Long.MAX_VALUE);
+		clickSelection.normalClick(1);
+		listInteger.add(3);
+		clickSelection.itemsInserted(2, 1);
+		assertFalse(clickSelection.canUndo());
+	}
+	
+	@Test
+	public void testSetAlgebraFiresOneEvent() {
+		for(int i=1; i<=5; i++) {
+			listInteger.add(i);
+		}
+		final List<SelectionDeltaEvent<Integer>> events=new ArrayList<SelectionDeltaEvent<Integer>>();
+		clickSelection.addListener(new Object() {
+			@Subscribe
+			public void onDelta(SelectionDeltaEvent<Integer> event) {
+				events.add(event);
+			}
+		});
+		ClickSelection<Integer> visible=new ClickSelection<Integer>(listInteger);
+		visible.selectRange(1, 3);
+		clickSelection.normalClick(1);
+		clickSelection.union(visible);
+		assertEquals(2, events.size());
+		assertEquals("[1-3]", events.get(1).added.toString());
+		clickSelection.intersect(visible);
+		assertEquals(3, events.size());
+		assertEquals("[0]", events.get(2).removed.toString());
+		clickSelection.subtract(Collections.singletonList(3));
+		assertEquals("[2]", events.get(3).removed.toString());
+		assertEquals(2, clickSelection.size());
+	}
+	
+	@Test
+	public void testReplayFiresNetDeltaOnce() {
+		for(int i=1; i<=6; i++) {
+			listInteger.add(i);
+		}
+		List<Integer> clicked=new ArrayList<Integer>();
+		Collections.addAll(clicked, 1, 4, 2, 6, 3);
+		int[] modifiers={0, InputEvent.SHIFT_MASK, InputEvent.CTRL_MASK, 0, InputEvent.CTRL_MASK};
+		ClickSelection<Integer> looped=new ClickSelection<Integer>(listInteger);
+		for(int i=0; i<clicked.size(); i++) {
+			looped.click(clicked.get(i), modifiers[i]);
+		}
+		
+		final List<SelectionDeltaEvent<Integer>> events=new ArrayList<SelectionDeltaEvent<Integer>>();
+		final AtomicInteger perItemEvents=new AtomicInteger();
+		clickSelection.addListener(new Object() {
+			@Subscribe
+			public void onDelta(SelectionDeltaEvent<Integer> event) {
+				events.add(event);
+			}
+			
+			@Subscribe
+			public void onSelect(SelectClickEvent<Integer> event) {
+				perItemEvents.incrementAndGet();
+			}
+		});
+		clickSelection.setPerItemEvents(true);
+		clickSelection.setUndoLimit(10, Long.MAX_VALUE);
+		clickSelection.replay(clicked, modifiers);
+		assertEquals(looped.elements(), clickSelection.elements());
+		assertEquals(1, events.size());
+		assertEquals(0, perItemEvents.get());
+		assertEquals("[2, 5]", events.get(0).added.toString());
+		
+		clickSelection.replayAt(new int[] {0}, new int[] {InputEvent.CTRL_MASK});
+		assertEquals(2, events.size());
+		assertTrue(clickSelection.isSelected(1));
+		assertTrue(clickSelection.undo());
+		assertTrue(clickSelection.undo());
+		assertEquals(0, clickSelection.size());
+		assertFalse(clickSelection.canUndo());
+	}
+	
+	@Test
+	public void testSelectionListener() {
+		final List<String> calls=new ArrayList<String>();
+		SelectionListener<Integer> listener=new SelectionAdapter<Integer>() {
+			@Override
+			public void onSelect(Integer element) {
+				calls.add("select " + element);
+			}
+			
+			@Override
+			public void onUnselect(Integer element) {
+				calls.add("unselect " + element);
+			}
+			
+			@Override
+			public void onClear() {
+				calls.add("clear");
+			}
+			
+			@Override
+			public void onDelta(SelectionDelta delta) {
+				calls.add("delta " + delta);
+			}
+		};
+		final AtomicInteger busEvents=new AtomicInteger();
+		clickSelection.addListener(new Object() {
+			@Subscribe
+			public void onDelta(SelectionDeltaEvent<Integer> event) {
+				busEvents.incrementAndGet();
+			}
+		});
+		clickSelection.addSelectionListener(listener);
+		listInteger.add(1);
+		listInteger.add(2);
+		clickSelection.normalClick(1);
+		clickSelection.ctrlClick(1);
+		assertEquals("[delta cleared, added=[0], removed=[], delta added=[], removed=[0]]", calls.toString());
+		assertEquals(2, busEvents.get());
+		
+		calls.clear();
+		clickSelection.setPerItemEvents(true);
+		clickSelection.shiftClick(2);
+		assertEquals("[clear, select 1, select 2, delta cleared, added=[0-1], removed=[]]", calls.toString());
+		
+		calls.clear();
+		clickSelection.removeSelectionListener(listener);
+		clickSelection.ctrlClick(2);
+		assertTrue(calls.isEmpty());
+		assertEquals(4, busEvents.get());
+	}
+	
+	@Test
+	public void testSelectionListenerWithAsyncDispatch() {
+		final List<String> calls=new ArrayList<String>();
+		clickSelection.setAsyncDispatch(new Executor() {
+			@Override
+			public void execute(Runnable command) {
+				command.run();
+			}
+		});
+		clickSelection.setPerItemEvents(true);
+		clickSelection.addSelectionListener(new SelectionAdapter<Integer>() {
+			@Override
+			public void onSelect(Integer element) {
+				calls.add("select " + element);
+			}
+			
+			@Override
+			public void onDelta(SelectionDelta delta) {
+				calls.add("delta " + delta.added());
+			}
+		});
+		listInteger.add(1);
+		clickSelection.normalClick(1);
+		assertEquals("[select 1, delta [0]]", calls.toString());
+	}
+	
+	@Test
+	public void testKeyboardNavigation() {
+		for(int i=0; i<10; i++) {
+			listInteger.add(i);
+		}
+		final List<String> deltas=new ArrayList<String>();
+		clickSelection.addSelectionListener(new SelectionAdapter<Integer>() {
+			@Override
+			public void onDelta(SelectionDelta delta) {
+				deltas.add(delta.toString());
+			}
+		});
+		clickSelection.normalClick(3);
+		assertEquals(3, clickSelection.leadIndex());
+		clickSelection.moveLead(1, InputEvent.SHIFT_MASK);
+		clickSelection.moveLead(1, InputEvent.SHIFT_MASK);
+		assertEquals(5, clickSelection.leadIndex());
+		assertEquals("[3, 4, 5]", new ArrayList<Integer>(new TreeSet<Integer>(clickSelection.elements())).toString());
+		deltas.clear();
+		clickSelection.moveLead(1, InputEvent.SHIFT_MASK);		//only the new item
+		clickSelection.moveLead(-1, InputEvent.SHIFT_MASK);		//only the last one
+		assertEquals("[added=[6], removed=[], added=[], removed=[6]]", deltas.toString());
+		
+		deltas.clear();
+		clickSelection.moveLeadTo(1, InputEvent.SHIFT_MASK);		//crosses the starting point
+		assertEquals("[added=[1-2], removed=[4-5]]", deltas.toString());
+		assertEquals(3, clickSelection.size());
+		
+		clickSelection.moveLead(5, 0);		//page down with no modifiers
+		assertEquals(1, clickSelection.size());
+		assertTrue(clickSelection.isSelected(6));
+		clickSelection.moveLead(2, InputEvent.CTRL_MASK);
+		assertEquals(8, clickSelection.leadIndex());
+		assertEquals(1, clickSelection.size());
+		clickSelection.toggleLead();
+		assertTrue(clickSelection.isSelected(8));
+		clickSelection.moveLead(100, InputEvent.SHIFT_MASK | InputEvent.CTRL_MASK);		//end, adding
+		assertEquals(9, clickSelection.leadIndex());
+		assertEquals(3, clickSelection.size());
+		
+		clickSelection.normalClick(2);		//the lead follows clicks
+		assertEquals(2, clickSelection.leadIndex());
+		clickSelection.moveLead(-1, InputEvent.SHIFT_MASK);
+		assertEquals(2, clickSelection.size());
+		assertTrue(clickSelection.isSelected(1));
+	}
+	
+	@Test
+	public void testRepeatedShiftClickOnlyAppliesTheChange() {
+		for(int i=0; i<100; i++) {
+			listInteger.add(i);
+		}
+		final List<String> calls=new ArrayList<String>();
+		clickSelection.addSelectionListener(new SelectionAdapter<Integer>() {
+			@Override
+			public void onSelect(Integer element) {
+				calls.add("select " + element);
+			}
+			
+			@Override
+			public void onUnselect(Integer element) {
+				calls.add("unselect " + element);
+			}
+			
+			@Override
+			public void onClear() {
+				calls.add("clear");
+			}
+		});
+		clickSelection.setPerItemEvents(true);
+		clickSelection.normalClick(10);
+		clickSelection.shiftClick(60);
+		calls.clear();
+		clickSelection.shiftClick(62);
+		assertEquals("[select 61, select 62]", calls.toString());
+		calls.clear();
+		clickSelection.shiftClick(59);
+		assertEquals("[unselect 60, unselect 61, unselect 62]", calls.toString());
+		assertEquals(50, clickSelection.size());
+		calls.clear();
+		clickSelection.shiftClick(8);		//the other side of the starting point
+		assertEquals(3, clickSelection.size());
+		assertFalse(calls.contains("clear"));
+		
+		clickSelection.ctrlClick(50);		//anything else in between starts over
+		calls.clear();
+		clickSelection.shiftClick(52);
+		assertEquals("clear", calls.get(0));
+		assertEquals(3, clickSelection.size());
+		assertTrue(clickSelection.isSelected(50));
+	}
+	
+	@Test
+	public void testDirectChangesStopRepeatedShiftClicks() {
+		for(int i=0; i<10; i++) {
+			listInteger.add(i);
+		}
+		RangeClickSelection<Integer> rangeSelection=new RangeClickSelection<Integer>(listInteger);
+		for(ClickSelection<Integer> selection : Arrays.asList(clickSelection, rangeSelection)) {
+			selection.normalClick(2);
+			selection.shiftClick(6);
+			selection.unselect(4);
+			selection.select(9);
+			selection.shiftClick(7);
+			assertEquals("[2, 3, 4, 5, 6, 7]", new TreeSet<Integer>(selection.elements()).toString());
+		}
+	}
+	
+	@Test
+	public void testSelectPositionsOfEmptyCollection() {
+		IndexRangeSet positions=new IndexRangeSet();
+		positions.add(0, 3);
+		clickSelection.selectPositions(positions);
+		clickSelection.selectPositions(new IndexRangeSet());
+		assertEquals(0, clickSelection.size());
+		
+		listInteger.add(1);
+		listInteger.add(2);
+		clickSelection.selectPositions(positions);
+		assertEquals(2, clickSelection.size());
+	}
+	
+	@Test
+	public void testAsyncDispatchDoesNotMergeAcrossCollectionChanges() {
+		final List<Runnable> tasks=new ArrayList<Runnable>();
+		final List<String> deltas=new ArrayList<String>();
+		for(int i=0; i<5; i++) {
+			listInteger.add(i);
+		}
+		RangeClickSelection<Integer> selection=new RangeClickSelection<Integer>(listInteger);
+		selection.setAsyncDispatch(new Executor() {
+			@Override
+			public void execute(Runnable command) {
+				tasks.add(command);
+			}
+		});
+		selection.addSelectionListener(new SelectionAdapter<Integer>() {
+			@Override
+			public void onDelta(SelectionDelta delta) {
+				deltas.add(delta.toString());
+			}
+		});
+		selection.normalClickAt(2);
+		listInteger.remove(0);
+		selection.itemsRemoved(0, 1);
+		selection.ctrlClickAt(2);
+		tasks.get(0).run();
+		assertEquals("[cleared, added=[2], removed=[], added=[2], removed=[]]", deltas.toString());
+		assertEquals("[1-2]", selection.selectedRanges().toString());
+	}
 }
@@ -7,7 +7,11 @@ import static org.junit.Assert.assertTrue;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
 
 import org.junit.After;
 import org.junit.Before;
@@ -54,7 +58,7 @@ public class TestDoubleClickSelection {
 		Thread.sleep(DoubleClickSelection.TIME_INTERVAL + 10);
 		clickSelection.normalClick(1);
 		assertTrue(clickSelection.isSelected(1));
-		Thread.sleep(DoubleClickSelection.TIME_INTERVAL + 10);
+		Thread.sleep(DoubleClickSelection.TIME_INTERVAL + 100);		//the timer may fire a tick late
 		assertEquals(0, clickSelection.size());
 		assertFalse(clickSelection.isSelected(1));
 		assertEquals(0, countDoubleClick.get());
@@ -109,4 +113,183 @@ public class TestDoubleClickSelection {
 		assertFalse(clickSelection.isSelected(1));	//click on 2, has forced to run the task waiting "1", and therefore selected. But the task for "2" has not run yet (still a chance of double click)
 		assertTrue(clickSelection.isSelected(2));
 	}
+	
+	@Test
+	public void testManyInstancesShareOneTimer() throws InterruptedException {
+		listInteger.add(1);
+		List<DoubleClickSelection<Integer>> selections=new ArrayList<DoubleClickSelection<Integer>>();
+		for(int i=0; i<2000; i++) {
+			DoubleClickSelection<Integer> selection=new DoubleClickSelection<Integer>(listInteger);
+			selection.normalClick(1);
+			selection.normalClick(1);		//a double click
+			selection.normalClick(1);		//delayed
+			selections.add(selection);
+		}
+		assertTrue(TimerWheel.shared().isRunning());
+		int timerThreads=0;
+		for(Thread thread : Thread.getAllStackTraces().keySet()) {
+			if(thread.getName().equals("TimerWheel-shared")) {
+				timerThreads++;
+			}
+		}
+		assertTrue(timerThreads<=2);		//the running one, and maybe an idle one still exiting
+		Thread.sleep(DoubleClickSelection.TIME_INTERVAL + 100);
+		for(DoubleClickSelection<Integer> selection : selections) {
+			assertEquals(0, selection.size());
+		}
+	}
+	
+	@Test
+	public void testManualSchedulerResolvesWithoutSleeping() {
+		listInteger.add(1);
+		listInteger.add(2);
+		ManualClickScheduler scheduler=new ManualClickScheduler();
+		DoubleClickSelection<Integer> selection=new DoubleClickSelection<Integer>(listInteger, scheduler);
+		selection.shiftClick(2);
+		selection.normalClick(1);		//delayed, 2 is still selected
+		assertEquals(1, scheduler.pending());
+		scheduler.advance(DoubleClickSelection.TIME_INTERVAL - 1, TimeUnit.MILLISECONDS);
+		assertTrue(selection.isSelected(2));
+		scheduler.advance(1, TimeUnit.MILLISECONDS);
+		assertEquals(0, scheduler.pending());
+		assertTrue(selection.isSelected(1));
+		assertFalse(selection.isSelected(2));
+	}
+	
+	@Test
+	public void testSchedulerRunsOnGivenExecutor() throws InterruptedException {
+		listInteger.add(1);
+		listInteger.add(2);
+		final CountDownLatch ran=new CountDownLatch(1);
+		final AtomicReference<String> runner=new AtomicReference<String>();
+		Executor executor=new Executor() {
+			@Override
+			public void execute(Runnable command) {
+				runner.set("executor");
+				command.run();
+				ran.countDown();
+			}
+		};
+		DoubleClickSelection<Integer> selection=new DoubleClickSelection<Integer>(listInteger, ClickScheduler.on(executor));
+		selection.shiftClick(2);
+		selection.normalClick(1);
+		assertTrue(ran.await(DoubleClickSelection.TIME_INTERVAL + 1000, TimeUnit.MILLISECONDS));
+		assertEquals("executor", runner.get());
+		assertTrue(selection.isSelected(1));
+		assertFalse(selection.isSelected(2));
+	}
+	
+	@Test
+	public void testEventTimeDoubleClick() {
+		listInteger.add(1);
+		final AtomicInteger doubleClicks=new AtomicInteger();
+		DoubleClickSelection<Integer> selection=new DoubleClickSelection<Integer>(listInteger, ClickScheduler.eventTime()) {
+			@Override
+			protected void fireDoubleClick(Collection<Integer> selection) {
+				doubleClicks.incrementAndGet();
+			}
+		};
+		long ms=TimeUnit.MILLISECONDS.toNanos(1);
+		selection.normalClick(1, 1000 * ms);
+		selection.normalClick(1, 1349 * ms);
+		assertEquals(1, doubleClicks.get());
+		selection.normalClick(1, 5000 * ms);
+		selection.normalClick(1, 5350 * ms);		//too late
+		assertEquals(1, doubleClicks.get());
+		
+		selection.setDoubleClickInterval(500, TimeUnit.MILLISECONDS);
+		assertEquals(500, selection.getDoubleClickInterval(TimeUnit.MILLISECONDS));
+		selection.normalClick(1, 5800 * ms);
+		assertEquals(2, doubleClicks.get());
+	}
+	
+	@Test
+	public void testEventTimeResolvesDelayedClicks() {
+		listInteger.add(1);
+		listInteger.add(2);
+		DoubleClickSelection<Integer> selection=new DoubleClickSelection<Integer>(listInteger, ClickScheduler.eventTime());
+		long ms=TimeUnit.MILLISECONDS.toNanos(1);
+		selection.shiftClick(2);
+		selection.normalClick(1, 0);		//delayed
+		selection.advanceTo(349 * ms);
+		assertTrue(selection.isSelected(2));
+		selection.advanceTo(350 * ms);
+		assertFalse(selection.isSelected(2));
+		
+		selection.shiftClick(2);
+		selection.normalClick(2, 1000 * ms);		//delayed
+		selection.normalClick(1, 2000 * ms);		//resolves the previous one first
+		assertEquals(1, selection.size());
+		assertTrue(selection.isSelected(1));
+	}
+	
+	@Test
+	public void testSelectionListenerGetsDoubleClick() {
+		listInteger.add(1);
+		final List<Collection<Integer>> doubleClicks=new ArrayList<Collection<Integer>>();
+		DoubleClickSelection<Integer> selection=new DoubleClickSelection<Integer>(listInteger, ClickScheduler.eventTime());
+		selection.addSelectionListener(new SelectionAdapter<Integer>() {
+			@Override
+			public void onDoubleClick(Collection<Integer> selected) {
+				doubleClicks.add(selected);
+			}
+		});
+		selection.normalClick(1, 0);
+		selection.normalClick(1, TimeUnit.MILLISECONDS.toNanos(100));
+		assertEquals(1, doubleClicks.size());
+		assertEquals(1, doubleClicks.get(0).size());
+	}
+	
+	@Test
+	public void testNormalClickAtMakesDoubleClick() {
+		listInteger.add(1);
+		listInteger.add(2);
+		listInteger.add(3);
+		final AtomicInteger doubleClicks=new AtomicInteger();
+		ManualClickScheduler scheduler=new ManualClickScheduler();
+		DoubleClickSelection<Integer> selection=new DoubleClickSelection<Integer>(listInteger, scheduler) {
+			@Override
+			protected void fireDoubleClick(Collection<Integer> selection) {
+				doubleClicks.incrementAndGet();
+			}
+		};
+		selection.normalClickAt(0);
+		selection.normalClickAt(0);
+		assertEquals(1, doubleClicks.get());
+		
+		selection.shiftClick(3);
+		selection.normalClick(2);		//delayed
+		selection.ctrlClickAt(2);		//resolves it first, then adds 3
+		scheduler.advance(DoubleClickSelection.TIME_INTERVAL, TimeUnit.MILLISECONDS);
+		assertEquals(0, scheduler.pending());
+		assertEquals(2, selection.size());
+		assertTrue(selection.isSelected(2));
+		assertTrue(selection.isSelected(3));
+	}
+	
+	@Test
+	public void testGesturesResolveDelayedClickFirst() {
+		for(int i=0; i<10; i++) {
+			listInteger.add(i);
+		}
+		ManualClickScheduler scheduler=new ManualClickScheduler();
+		DoubleClickSelection<Integer> selection=new DoubleClickSelection<Integer>(listInteger, scheduler);
+		selection.setUndoLimit(10, Long.MAX_VALUE);
+		selection.shiftClick(3);
+		selection.normalClick(2);		//delayed
+		selection.selectAll();
+		scheduler.advance(DoubleClickSelection.TIME_INTERVAL, TimeUnit.MILLISECONDS);
+		assertEquals(10, selection.size());
+		
+		selection.normalClick(2);		//delayed
+		assertTrue(selection.undo());		//undoes the click, resolved as a gesture of its own
+		scheduler.advance(DoubleClickSelection.TIME_INTERVAL, TimeUnit.MILLISECONDS);
+		assertEquals(10, selection.size());
+		assertTrue(selection.canRedo());
+		
+		selection.normalClick(2);		//delayed
+		selection.clearSelection();
+		scheduler.advance(DoubleClickSelection.TIME_INTERVAL, TimeUnit.MILLISECONDS);
+		assertEquals(0, selection.size());
+	}
 }
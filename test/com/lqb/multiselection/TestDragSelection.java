@@ -0,0 +1,146 @@
+package com.lqb.multiselection;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.awt.event.InputEvent;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+
+public class TestDragSelection {
+	private List<Integer> listInteger;
+	private RangeClickSelection<Integer> clickSelection;
+	private List<String> deltas;
+	
+	@Before
+	public void setupTest() {
+		listInteger=new ArrayList<Integer>();
+		for(int i=0; i<100; i++) {
+			listInteger.add(i);
+		}
+		clickSelection=new RangeClickSelection<Integer>(listInteger);
+		deltas=new ArrayList<String>();
+		clickSelection.addSelectionListener(new SelectionAdapter<Integer>() {
+			@Override
+			public void onDelta(SelectionDelta delta) {
+				deltas.add(delta.toString());
+			}
+		});
+	}
+	
+	@Test
+	public void testListDrag() {
+		clickSelection.normalClickAt(8);
+		DragSelection<Integer> drag=clickSelection.beginDrag(2, 0);
+		assertEquals("[2]", clickSelection.selectedRanges().toString());
+		deltas.clear();
+		drag.dragTo(5);
+		drag.dragTo(6);		//same frame
+		drag.flush();
+		drag.flush();		//no move since the last frame
+		assertEquals("[added=[3-6], removed=[]]", deltas.toString());
+		drag.dragTo(4);
+		drag.flush();
+		assertEquals("added=[], removed=[5-6]", deltas.get(1));
+		drag.dragTo(0);
+		drag.end();
+		assertEquals("added=[0-1], removed=[3-4]", deltas.get(2));
+		assertEquals("[0-2]", clickSelection.selectedRanges().toString());
+		assertTrue(drag.isEnded());
+		
+		drag.dragTo(50);
+		drag.flush();
+		assertEquals(3, deltas.size());
+		clickSelection.shiftClickAt(3);		//the drag started at the starting point for shift
+		assertEquals("[2-3]", clickSelection.selectedRanges().toString());
+	}
+	
+	@Test
+	public void testCtrlDragKeepsPreviousSelection() {
+		clickSelection.normalClickAt(3);
+		clickSelection.ctrlClickAt(20);
+		DragSelection<Integer> drag=clickSelection.beginDrag(1, InputEvent.CTRL_MASK);
+		drag.dragTo(4);
+		drag.flush();
+		assertEquals("[1-4, 20]", clickSelection.selectedRanges().toString());
+		drag.dragTo(1);
+		drag.end();
+		assertEquals("[1, 3, 20]", clickSelection.selectedRanges().toString());
+	}
+	
+	@Test
+	public void testShiftDragStartsAtAnchor() {
+		clickSelection.normalClickAt(2);
+		DragSelection<Integer> drag=clickSelection.beginDrag(6, InputEvent.SHIFT_MASK);
+		assertEquals("[2-6]", clickSelection.selectedRanges().toString());
+		drag.dragTo(1);
+		drag.end();
+		assertEquals("[1-2]", clickSelection.selectedRanges().toString());
+	}
+	
+	@Test
+	public void testRectangleDrag() {
+		DragSelection.SpatialIndex grid=new DragSelection.SpatialIndex() {
+			@Override
+			public void positionsIn(double x0, double y0, double x1, double y1, IndexRangeSet into) {
+				int fromColumn=(int) Math.ceil(x0);
+				int toColumn=Math.min(9, (int) Math.floor(x1));
+				for(int row=(int) Math.ceil(y0); row<=Math.min(9, (int) Math.floor(y1)); row++) {
+					if(fromColumn<=toColumn) {
+						into.add(row * 10 + fromColumn, row * 10 + toColumn);
+					}
+				}
+			}
+		};
+		clickSelection.normalClickAt(99);
+		DragSelection<Integer> drag=clickSelection.beginDrag(grid, 0.5, 0.5, 0);
+		assertEquals(0, clickSelection.size());
+		drag.dragTo(3.5, 2.5);
+		drag.flush();
+		assertEquals("[11-13, 21-23]", clickSelection.selectedRanges().toString());
+		deltas.clear();
+		drag.dragTo(2.5, 2.5);
+		drag.end();
+		assertEquals("[added=[], removed=[13, 23]]", deltas.toString());
+	}
+	
+	@Test
+	public void testSetBasedSelection() {
+		ClickSelection<Integer> selection=new ClickSelection<Integer>(listInteger);
+		DragSelection<Integer> drag=selection.beginDrag(10, 0);
+		drag.dragTo(19);
+		drag.flush();
+		assertEquals(10, selection.size());
+		drag.dragTo(12);
+		drag.end();
+		assertEquals(3, selection.size());
+		assertTrue(selection.isSelected(12));
+	}
+	
+	@Test
+	public void testDragIsOneUndoStep() {
+		clickSelection.setUndoLimit(3, Long.MAX_VALUE);
+		clickSelection.normalClickAt(40);
+		clickSelection.ctrlClickAt(42);
+		deltas.clear();
+		DragSelection<Integer> drag=clickSelection.beginDrag(10, 0);
+		for(int i=11; i<30; i++) {
+			drag.dragTo(i);
+			drag.flush();
+		}
+		drag.dragTo(15);
+		drag.end();
+		assertEquals(21, deltas.size());		//still one delta per frame
+		assertEquals("[10-15]", clickSelection.selectedRanges().toString());
+		assertTrue(clickSelection.undo());
+		assertEquals("[40, 42]", clickSelection.selectedRanges().toString());
+		assertTrue(clickSelection.undo());		//the gestures before it were not evicted
+		assertEquals("[40]", clickSelection.selectedRanges().toString());
+		assertTrue(clickSelection.redo());
+		assertTrue(clickSelection.redo());
+		assertEquals("[10-15]", clickSelection.selectedRanges().toString());
+	}
+}
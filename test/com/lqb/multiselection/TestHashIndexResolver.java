@@ -0,0 +1,61 @@
+package com.lqb.multiselection;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.LinkedList;
+import java.util.List;
+
+import org.junit.Test;
+
+public class TestHashIndexResolver {
+
+	@Test
+	public void testFirstOccurrence() {
+		List<String> list=new ArrayList<String>();
+		list.add("a");
+		list.add("b");
+		list.add("a");
+		HashIndexResolver<String> resolver=new HashIndexResolver<String>(list);
+		assertEquals(0, resolver.indexOf("a"));
+		assertEquals(1, resolver.indexOf("b"));
+		assertEquals(-1, resolver.indexOf("c"));
+	}
+
+	@Test
+	public void testFollowsInsertions() {
+		List<String> list=new ArrayList<String>();
+		list.add("a");
+		HashIndexResolver<String> resolver=new HashIndexResolver<String>(list);
+		assertEquals(-1, resolver.indexOf("b"));
+		list.add(0, "b");
+		assertEquals(0, resolver.indexOf("b"));
+		assertEquals(1, resolver.indexOf("a"));
+	}
+
+	@Test
+	public void testFollowsSetOnRandomAccess() {
+		List<String> list=new ArrayList<String>();
+		list.add("a");
+		list.add("b");
+		HashIndexResolver<String> resolver=new HashIndexResolver<String>(list);
+		assertEquals(1, resolver.indexOf("b"));
+		list.set(0, "b");
+		list.set(1, "a");
+		assertEquals(0, resolver.indexOf("b"));
+		assertEquals(1, resolver.indexOf("a"));
+	}
+
+	@Test
+	public void testInvalidate() {
+		List<String> list=new LinkedList<String>();
+		list.add("a");
+		list.add("b");
+		HashIndexResolver<String> resolver=new HashIndexResolver<String>(list);
+		assertEquals(1, resolver.indexOf("b"));
+		list.set(1, "c");
+		resolver.invalidate();
+		assertEquals(-1, resolver.indexOf("b"));
+		assertEquals(1, resolver.indexOf("c"));
+	}
+}
@@ -0,0 +1,91 @@
+package com.lqb.multiselection;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.google.common.eventbus.Subscribe;
+import com.lqb.multiselection.events.SelectionDeltaEvent;
+
+public class TestHistogramSelectionMetrics {
+	private HistogramSelectionMetrics metrics;
+	private List<Integer> listInteger;
+
+	@Before
+	public void setupTest() {
+		metrics=new HistogramSelectionMetrics();
+		listInteger=new ArrayList<Integer>();
+		for(int i=1; i<=100; i++) {
+			listInteger.add(i);
+		}
+	}
+
+	@Test
+	public void testHistogram() {
+		HistogramSelectionMetrics.Histogram histogram=new HistogramSelectionMetrics.Histogram();
+		assertEquals(0, histogram.percentile(50));
+		for(int i=1; i<=100; i++) {
+			histogram.record(i);
+		}
+		histogram.record(0);
+		assertEquals(101, histogram.count());
+		assertEquals(5050, histogram.sum());
+		assertEquals(100, histogram.max());
+		assertEquals(0, histogram.percentile(0));
+		assertEquals(63, histogram.percentile(50));
+		assertEquals(100, histogram.percentile(99));
+		histogram.record(Long.MAX_VALUE);
+		assertEquals(Long.MAX_VALUE, histogram.percentile(100));
+		histogram.reset();
+		assertEquals(0, histogram.count());
+	}
+
+	@Test
+	public void testGestures() {
+		RangeClickSelection<Integer> selection=new RangeClickSelection<Integer>(listInteger);
+		selection.addListener(new Object() {
+			@Subscribe
+			public void onDelta(SelectionDeltaEvent<Integer> event) {
+			}
+		});
+		selection.normalClick(1);
+		selection.setMetrics(metrics);
+		selection.shiftClick(50);
+		selection.shiftClick(50);		//same range, nothing changes
+		selection.selectAll();
+		assertEquals(3, metrics.gestureLatency().count());
+		assertEquals(3, metrics.lockHold().count());
+		assertEquals(2, metrics.eventsPerGesture().sum());
+		assertEquals(2, metrics.dispatchTime().count());
+		assertEquals(2, metrics.rangeWidth().count());
+		assertEquals(100, metrics.rangeWidth().max());
+		assertTrue(metrics.gestureLatency().max()>=metrics.lockHold().max());
+		selection.setMetrics(null);
+		selection.selectNone();
+		assertEquals(3, metrics.gestureLatency().count());
+	}
+
+	@Test
+	public void testPendingDelayedClicks() {
+		DoubleClickSelection<Integer> selection=new DoubleClickSelection<Integer>(listInteger);
+		try {
+			selection.setMetrics(metrics);
+			selection.normalClick(1);
+			selection.ctrlClick(2);
+			selection.normalClick(2);
+			assertEquals(1, metrics.pendingDelayedClicks());
+			selection.ctrlClick(3);
+			assertEquals(0, metrics.pendingDelayedClicks());
+			selection.normalClick(3);
+			selection.normalClick(3);
+			assertEquals(0, metrics.pendingDelayedClicks());
+		} finally {
+			selection.cleanup();
+		}
+	}
+}
@@ -0,0 +1,199 @@
+package com.lqb.multiselection;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.BitSet;
+import java.util.Random;
+
+import org.junit.Before;
+import org.junit.Test;
+
+public class TestIndexRangeSet {
+	private IndexRangeSet ranges;
+
+	@Before
+	public void setupTest() {
+		ranges=new IndexRangeSet();
+	}
+
+	@Test
+	public void testAddRange() {
+		assertEquals(5, ranges.add(3, 7));
+		assertEquals(5, ranges.size());
+		assertFalse(ranges.contains(2));
+		assertTrue(ranges.contains(3));
+		assertTrue(ranges.contains(7));
+		assertFalse(ranges.contains(8));
+	}
+
+	@Test
+	public void testAddReversedRange() {
+		assertEquals(5, ranges.add(7, 3));
+		assertEquals("[3-7]", ranges.toString());
+	}
+
+	@Test
+	public void testAddContainedRange() {
+		ranges.add(0, 10);
+		assertEquals(0, ranges.add(2, 5));
+		assertEquals(11, ranges.size());
+		assertEquals(1, ranges.rangeCount());
+	}
+
+	@Test
+	public void testAddMergesAdjacentAndOverlapping() {
+		ranges.add(0, 2);
+		ranges.add(6, 8);
+		ranges.add(12, 12);
+		assertEquals(3, ranges.rangeCount());
+		assertEquals(5, ranges.add(3, 10));
+		assertEquals("[0-10, 12]", ranges.toString());
+		assertEquals(12, ranges.size());
+	}
+
+	@Test
+	public void testRemoveSplitsRange() {
+		ranges.add(0, 9);
+		assertEquals(3, ranges.remove(3, 5));
+		assertEquals("[0-2, 6-9]", ranges.toString());
+		assertEquals(7, ranges.size());
+	}
+
+	@Test
+	public void testRemoveAcrossRanges() {
+		ranges.add(0, 2);
+		ranges.add(5, 7);
+		ranges.add(10, 12);
+		assertEquals(5, ranges.remove(2, 10));
+		assertEquals("[0-1, 11-12]", ranges.toString());
+		assertEquals(4, ranges.size());
+	}
+
+	@Test
+	public void testRemoveNotContained() {
+		ranges.add(5, 7);
+		assertEquals(0, ranges.remove(0, 4));
+		assertEquals(3, ranges.size());
+	}
+
+	@Test
+	public void testNextSetIndex() {
+		ranges.add(2, 3);
+		ranges.add(8, 8);
+		assertEquals(2, ranges.nextSetIndex(0));
+		assertEquals(3, ranges.nextSetIndex(3));
+		assertEquals(8, ranges.nextSetIndex(4));
+		assertEquals(-1, ranges.nextSetIndex(9));
+	}
+
+	@Test
+	public void testWideRange() {
+		assertEquals(10000000, ranges.add(0, 9999999));
+		assertEquals(1, ranges.rangeCount());
+		assertTrue(ranges.contains(5000000));
+	}
+
+	@Test
+	public void testFlip() {
+		ranges.add(2, 3);
+		ranges.add(6, 6);
+		ranges.add(20, 30);
+		ranges.flip(0, 10);
+		assertEquals("[0-1, 4-5, 7-10, 20-30]", ranges.toString());
+		assertEquals(19, ranges.size());
+		ranges.flip(0, 10);
+		assertEquals("[2-3, 6, 20-30]", ranges.toString());
+	}
+
+	@Test
+	public void testRangesWindow() {
+		ranges.add(0, 5);
+		ranges.add(8, 12);
+		assertEquals("[3-5, 8-9]", ranges.ranges(3, 9).toString());
+	}
+
+	@Test
+	public void testInsertSplitsAndShifts() {
+		ranges.add(2, 5);
+		ranges.add(10, 12);
+		ranges.insert(4, 3);
+		assertEquals("[2-3, 7-8, 13-15]", ranges.toString());
+		assertEquals(7, ranges.size());
+	}
+
+	@Test
+	public void testDeleteShiftsAndMerges() {
+		ranges.add(2, 3);
+		ranges.add(6, 8);
+		ranges.add(12, 12);
+		assertEquals(1, ranges.delete(4, 3));
+		assertEquals("[2-5, 9]", ranges.toString());
+		assertEquals(5, ranges.size());
+	}
+
+	@Test
+	public void testSetAlgebra() {
+		ranges.add(0, 9);
+		ranges.add(20, 29);
+		IndexRangeSet other=new IndexRangeSet();
+		other.add(5, 24);
+		other.add(40, 40);
+
+		IndexRangeSet union=new IndexRangeSet(ranges);
+		assertEquals(11, union.addAll(other));
+		assertEquals("[0-29, 40]", union.toString());
+
+		IndexRangeSet intersection=new IndexRangeSet(ranges);
+		assertEquals(10, intersection.retainAll(other));
+		assertEquals("[5-9, 20-24]", intersection.toString());
+
+		IndexRangeSet difference=new IndexRangeSet(ranges);
+		assertEquals(10, difference.removeAll(other));
+		assertEquals("[0-4, 25-29]", difference.toString());
+		assertEquals(10, difference.size());
+	}
+
+	@Test
+	public void testSetAlgebraAgainstBitSet() {
+		Random random=new Random(7);
+		for(int round=0; round<200; round++) {
+			IndexRangeSet a=new IndexRangeSet();
+			IndexRangeSet b=new IndexRangeSet();
+			BitSet bitsA=new BitSet();
+			BitSet bitsB=new BitSet();
+			for(int i=0; i<10; i++) {
+				int from=random.nextInt(200);
+				int to=from + random.nextInt(20);
+				a.add(from, to);
+				bitsA.set(from, to + 1);
+				from=random.nextInt(200);
+				to=from + random.nextInt(20);
+				b.add(from, to);
+				bitsB.set(from, to + 1);
+			}
+			IndexRangeSet res=new IndexRangeSet(a);
+			BitSet expected=(BitSet) bitsA.clone();
+			switch(round % 3) {
+				case 0:
+					res.addAll(b);
+					expected.or(bitsB);
+					break;
+				case 1:
+					res.retainAll(b);
+					expected.and(bitsB);
+					break;
+				default:
+					res.removeAll(b);
+					expected.andNot(bitsB);
+			}
+			IndexRangeSet expectedRanges=new IndexRangeSet();
+			for(int i=expected.nextSetBit(0); i>=0; i=expected.nextSetBit(i + 1)) {
+				expectedRanges.add(i, i);
+			}
+			assertEquals(expectedRanges, res);
+			assertEquals(expected.cardinality(), res.size());
+		}
+	}
+}
@@ -0,0 +1,185 @@
+package com.lqb.multiselection;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Random;
+import java.util.TreeSet;
+
+import java.util.BitSet;
+
+import org.junit.Before;
+import org.junit.Test;
+
+public class TestIntBitmap {
+	private IntBitmap bitmap;
+
+	@Before
+	public void setupTest() {
+		bitmap=new IntBitmap();
+	}
+
+	@Test
+	public void testAddRemove() {
+		assertTrue(bitmap.add(5));
+		assertFalse(bitmap.add(5));
+		assertTrue(bitmap.add(70000));
+		assertEquals(2, bitmap.cardinality());
+		assertTrue(bitmap.contains(70000));
+		assertTrue(bitmap.remove(5));
+		assertFalse(bitmap.remove(5));
+		assertFalse(bitmap.contains(5));
+		assertEquals(1, bitmap.cardinality());
+	}
+
+	@Test
+	public void testSelectAllIsSmall() {
+		assertEquals(10000000, bitmap.addRange(0, 9999999));
+		assertEquals(10000000, bitmap.cardinality());
+		assertTrue(bitmap.contains(0));
+		assertTrue(bitmap.contains(5000000));
+		assertTrue(bitmap.contains(9999999));
+		assertFalse(bitmap.contains(10000000));
+		assertTrue(bitmap.sizeInBytes() < 16 * 1024);
+	}
+
+	@Test
+	public void testRemoveRangeAcrossChunks() {
+		bitmap.addRange(0, 200000);
+		assertEquals(100001, bitmap.removeRange(50000, 150000));
+		assertTrue(bitmap.contains(49999));
+		assertFalse(bitmap.contains(50000));
+		assertFalse(bitmap.contains(150000));
+		assertTrue(bitmap.contains(150001));
+		assertEquals(100000, bitmap.cardinality());
+	}
+
+	@Test
+	public void testDenseChunkBecomesBitmapAndBack() {
+		for(int i=0; i<10000; i+=2) {
+			bitmap.add(i);
+		}
+		assertEquals(5000, bitmap.cardinality());
+		for(int i=0; i<10000; i+=4) {
+			bitmap.remove(i);
+		}
+		assertEquals(2500, bitmap.cardinality());
+		assertTrue(bitmap.contains(2));
+		assertFalse(bitmap.contains(4));
+	}
+
+	@Test
+	public void testIterator() {
+		bitmap.add(3);
+		bitmap.addRange(65534, 65537);
+		bitmap.add(1000000);
+		IntIterator ite=bitmap.iterator();
+		assertEquals(3, ite.next());
+		assertEquals(65534, ite.next());
+		assertEquals(65535, ite.next());
+		assertEquals(65536, ite.next());
+		assertEquals(65537, ite.next());
+		assertEquals(1000000, ite.next());
+		assertFalse(ite.hasNext());
+	}
+
+	@Test
+	public void testAgainstTreeSet() {
+		Random random=new Random(42);
+		TreeSet<Integer> expected=new TreeSet<Integer>();
+		for(int step=0; step<5000; step++) {
+			int from=random.nextInt(300000);
+			int to=from + random.nextInt(step % 10==0 ? 70000 : 50);
+			switch(random.nextInt(4)) {
+				case 0:
+					bitmap.add(from);
+					expected.add(from);
+					break;
+				case 1:
+					bitmap.remove(from);
+					expected.remove(from);
+					break;
+				case 2:
+					long added=bitmap.addRange(from, to);
+					int before=expected.size();
+					for(int i=from; i<=to; i++) {
+						expected.add(i);
+					}
+					assertEquals(expected.size() - before, added);
+					break;
+				default:
+					long removed=bitmap.removeRange(from, to);
+					int size=expected.size();
+					expected.subSet(from, true, to, true).clear();
+					assertEquals(size - expected.size(), removed);
+			}
+			assertEquals(expected.size(), bitmap.cardinality());
+		}
+		IntIterator ite=bitmap.iterator();
+		for(int value : expected) {
+			assertEquals(value, ite.next());
+		}
+		assertFalse(ite.hasNext());
+	}
+
+	@Test
+	public void testSetAlgebraAgainstBitSet() {
+		Random random=new Random(11);
+		for(int round=0; round<60; round++) {
+			IntBitmap other=new IntBitmap();
+			BitSet bits=new BitSet();
+			BitSet otherBits=new BitSet();
+			bitmap.clear();
+			for(int i=0; i<40; i++) {
+				//mixes sparse values, long runs and dense noise, so every pair of containers is combined
+				int from=random.nextInt(200000);
+				int to=from + (i % 4==0 ? random.nextInt(70000) : random.nextInt(3));
+				if(i % 2==0) {
+					bitmap.addRange(from, to);
+					bits.set(from, to + 1);
+				} else {
+					other.addRange(from, to);
+					otherBits.set(from, to + 1);
+				}
+			}
+			for(int i=0; i<6000; i++) {
+				int value=random.nextInt(8192) * 2;
+				other.add(value);
+				otherBits.set(value);
+			}
+			long before=bitmap.cardinality();
+			switch(round % 3) {
+				case 0:
+					long added=bitmap.or(other);
+					bits.or(otherBits);
+					assertEquals(bits.cardinality() - before, added);
+					break;
+				case 1:
+					long removed=bitmap.and(other);
+					bits.and(otherBits);
+					assertEquals(before - bits.cardinality(), removed);
+					break;
+				default:
+					removed=bitmap.andNot(other);
+					bits.andNot(otherBits);
+					assertEquals(before - bits.cardinality(), removed);
+			}
+			assertEquals(bits.cardinality(), bitmap.cardinality());
+			IntIterator ite=bitmap.iterator();
+			for(int i=bits.nextSetBit(0); i>=0; i=bits.nextSetBit(i + 1)) {
+				assertEquals(i, ite.next());
+			}
+			assertFalse(ite.hasNext());
+		}
+	}
+
+	@Test
+	public void testSetAlgebraWithItself() {
+		bitmap.addRange(10, 100000);
+		assertEquals(0, bitmap.or(bitmap));
+		assertEquals(0, bitmap.and(bitmap));
+		assertEquals(99991, bitmap.andNot(bitmap));
+		assertTrue(bitmap.isEmpty());
+	}
+}
@@ -0,0 +1,64 @@
+package com.lqb.multiselection;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Before;
+import org.junit.Test;
+
+public class TestIntSelection {
+	private IntSelection newSelection;
+
+	@Before
+	public void setupTest() {
+		newSelection=new IntSelection();
+	}
+
+	@Test
+	public void testSelectWithToggle() {
+		newSelection.toggle(2);
+		assertTrue(newSelection.isSelected(2));
+		newSelection.toggle(2);
+		assertFalse(newSelection.isSelected(2));
+	}
+
+	@Test
+	public void testSelectRangeAndUnselect() {
+		assertEquals(10, newSelection.selectRange(0, 9));
+		newSelection.unselect(5);
+		assertEquals(9, newSelection.size());
+		assertEquals(4, newSelection.unselectRange(3, 7));
+		IntIterator ite=newSelection.intIterator();
+		assertEquals(0, ite.next());
+		assertEquals(1, ite.next());
+		assertEquals(2, ite.next());
+		assertEquals(8, ite.next());
+		assertEquals(9, ite.next());
+		assertFalse(ite.hasNext());
+	}
+
+	@Test
+	public void testClearSelection() {
+		newSelection.selectRange(0, 9999999);
+		assertEquals(10000000, newSelection.size());
+		newSelection.clearSelection();
+		assertFalse(newSelection.isSelected(1));
+		assertEquals(0, newSelection.size());
+	}
+
+	@Test
+	public void testSetAlgebra() {
+		IntSelection other=new IntSelection();
+		newSelection.selectRange(0, 999999);
+		other.selectRange(500000, 1499999);
+		assertEquals(500000, newSelection.union(other));
+		assertEquals(1500000, newSelection.size());
+		assertEquals(500000, newSelection.intersect(other));
+		assertEquals(1000000, newSelection.size());
+		other.unselectRange(0, 999999);
+		assertEquals(500000, newSelection.subtract(other));
+		assertTrue(newSelection.isSelected(500000));
+		assertFalse(newSelection.isSelected(1000000));
+	}
+}
@@ -0,0 +1,352 @@
+package com.lqb.multiselection;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.awt.event.InputEvent;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.google.common.eventbus.Subscribe;
+import com.lqb.multiselection.events.RangeSelectClickEvent;
+import com.lqb.multiselection.events.SelectClickEvent;
+import com.lqb.multiselection.events.SelectionDeltaEvent;
+
+public class TestRangeClickSelection {
+	private List<Integer> listInteger;
+	private RangeClickSelection<Integer> clickSelection;
+
+	@Before
+	public void setupTest() {
+		listInteger=new ArrayList<Integer>();
+		for(int i=1; i<=5; i++) {
+			listInteger.add(i);
+		}
+		clickSelection=new RangeClickSelection<Integer>(listInteger);
+	}
+
+	@Test
+	public void testNormalClickTwice() {
+		clickSelection.normalClick(1);
+		assertEquals(1, (int) clickSelection.iterator().next());
+		clickSelection.normalClick(1);
+		assertEquals(0, clickSelection.size());
+	}
+
+	@Test
+	public void testNormalClickNotInCollection() {
+		clickSelection.normalClick(10);
+		assertEquals(0, clickSelection.size());
+		assertFalse(clickSelection.isSelected(10));
+	}
+
+	@Test
+	public void testShiftFromEndToBeginning() {
+		clickSelection.normalClick(5);
+		clickSelection.shiftClick(1);
+		assertEquals(5, clickSelection.size());
+		Iterator<Integer> ite=clickSelection.iterator();
+		for(int i=1; i<=5; i++) {
+			assertEquals(i, (int) ite.next());
+		}
+		assertFalse(ite.hasNext());
+	}
+
+	@Test
+	public void testShiftMiddleStartShiftEnd() {
+		clickSelection.normalClick(3);
+		clickSelection.shiftClick(1);
+		clickSelection.shiftClick(5);
+		assertEquals(3, clickSelection.size());
+		assertEquals("[2-4]", clickSelection.selectedRanges().toString());
+	}
+
+	@Test
+	public void testControlClickDisperateAndShiftStart() {
+		clickSelection.normalClick(1);
+		clickSelection.ctrlClick(4);
+		clickSelection.ctrlClick(3);
+		assertEquals(3, clickSelection.size());
+		clickSelection.shiftClick(1);
+		assertEquals("[0-2]", clickSelection.selectedRanges().toString());
+	}
+
+	@Test
+	public void testCtrlShiftClick() {
+		clickSelection.normalClick(3);
+		clickSelection.shiftClick(5);
+		clickSelection.shiftCtrlClick(1);
+		assertEquals(5, clickSelection.size());
+		assertEquals(1, clickSelection.selectedRanges().rangeCount());
+	}
+
+	@Test
+	public void testShiftAllAndControlOne() {
+		clickSelection.shiftClick(3);
+		clickSelection.ctrlClick(2);
+		assertEquals(2, clickSelection.size());
+		assertTrue(clickSelection.isSelectedAt(0));
+		assertFalse(clickSelection.isSelectedAt(1));
+		assertTrue(clickSelection.isSelected(3));
+	}
+
+	@Test
+	public void testShiftFiresSingleDeltaEvent() {
+		final List<SelectionDeltaEvent<Integer>> events=new ArrayList<SelectionDeltaEvent<Integer>>();
+		clickSelection.addListener(new Object() {
+			@Subscribe
+			public void onDelta(SelectionDeltaEvent<Integer> event) {
+				events.add(event);
+			}
+		});
+		clickSelection.normalClick(2);
+		clickSelection.shiftClick(5);
+		assertEquals(2, events.size());
+		assertTrue(events.get(1).cleared);
+		assertEquals("[1-4]", events.get(1).added.toString());
+	}
+
+	@Test
+	public void testShiftFiresSingleRangeEvent() {
+		clickSelection.setPerItemEvents(true);
+		final List<Object> events=new ArrayList<Object>();
+		clickSelection.addListener(new Object() {
+			@Subscribe
+			public void onSelect(SelectClickEvent<Integer> event) {
+				events.add(event);
+			}
+
+			@Subscribe
+			public void onRange(RangeSelectClickEvent<Integer> event) {
+				events.add(event);
+			}
+		});
+		clickSelection.normalClick(1);
+		clickSelection.shiftClick(5);
+		assertEquals(2, events.size());
+		RangeSelectClickEvent<?> range=(RangeSelectClickEvent<?>) events.get(1);
+		assertEquals(0, range.fromIndex);
+		assertEquals(4, range.toIndex);
+	}
+
+	@Test
+	public void testVirtualSource() {
+		final AtomicInteger reads=new AtomicInteger();
+		RangeClickSelection<Long> virtual=new RangeClickSelection<Long>(new SelectionSource<Long>() {
+			@Override
+			public int size() {
+				return 100000000;
+			}
+
+			@Override
+			public Long keyAt(int index) {
+				reads.incrementAndGet();
+				return index * 10L;
+			}
+
+			@Override
+			public int indexOf(Long key) {
+				return (key % 10==0 && key>=0 && key/10 < size()) ? (int) (key / 10) : -1;
+			}
+		});
+		virtual.normalClickAt(10);
+		virtual.shiftClick(999999900L);
+		assertEquals(99999981, virtual.size());
+		assertTrue(virtual.isSelected(500000000L));
+		assertFalse(virtual.isSelected(50L));
+		assertTrue(reads.get() < 5);
+	}
+
+	@Test
+	public void testInvertSelection() {
+		clickSelection.normalClick(2);
+		clickSelection.ctrlClick(4);
+		clickSelection.invertSelection();
+		assertEquals("[0, 2, 4]", clickSelection.selectedRanges().toString());
+		clickSelection.selectAll();
+		assertEquals("[0-4]", clickSelection.selectedRanges().toString());
+		clickSelection.invertSelection();
+		assertEquals(0, clickSelection.size());
+	}
+
+	@Test
+	public void testCollectionChanges() {
+		clickSelection.normalClick(2);
+		clickSelection.shiftClick(4);
+		listInteger.add(0, 0);
+		clickSelection.itemsInserted(0, 1);
+		assertEquals("[2-4]", clickSelection.selectedRanges().toString());
+		assertTrue(clickSelection.isSelected(2));
+		List<Integer> removed=new ArrayList<Integer>(listInteger.subList(3, 5));
+		listInteger.subList(3, 5).clear();
+		clickSelection.itemsRemoved(3, removed);
+		assertEquals("[2]", clickSelection.selectedRanges().toString());
+		clickSelection.shiftClick(5);
+		assertEquals("[2-3]", clickSelection.selectedRanges().toString());
+	}
+
+	@Test
+	public void testItemMoved() {
+		clickSelection.normalClick(1);
+		listInteger.add(3, listInteger.remove(0));
+		clickSelection.itemMoved(0, 3);
+		assertEquals("[3]", clickSelection.selectedRanges().toString());
+		clickSelection.shiftClick(3);
+		assertEquals("[1-3]", clickSelection.selectedRanges().toString());
+	}
+
+	@Test
+	public void testUndoOnlyRevertsChangedPositions() {
+		final List<SelectionDeltaEvent<Integer>> events=new ArrayList<SelectionDeltaEvent<Integer>>();
+		clickSelection.addListener(new Object() {
+			@Subscribe
+			public void onDelta(SelectionDeltaEvent<Integer> event) {
+				events.add(event);
+			}
+		});
+		clickSelection.setUndoLimit(10, Long.MAX_VALUE);
+		clickSelection.normalClick(2);
+		clickSelection.ctrlClick(4);
+		clickSelection.shiftCtrlClick(5);
+		assertEquals("[1, 3-4]", clickSelection.selectedRanges().toString());
+		assertTrue(clickSelection.undo());
+		assertEquals("[1, 3]", clickSelection.selectedRanges().toString());
+		assertEquals("[4]", events.get(events.size() - 1).removed.toString());
+		clickSelection.invertSelection();
+		assertTrue(clickSelection.undo());
+		assertEquals("[1, 3]", clickSelection.selectedRanges().toString());
+		clickSelection.shiftClick(1);
+		assertEquals("[0-3]", clickSelection.selectedRanges().toString());
+		assertTrue(clickSelection.undo());
+		assertTrue(clickSelection.redo());
+		assertEquals("[0-3]", clickSelection.selectedRanges().toString());
+		assertTrue(clickSelection.undo());
+		clickSelection.normalClick(3);
+		assertTrue(clickSelection.undo());
+		assertTrue(clickSelection.undo());
+		assertTrue(clickSelection.undo());
+		assertEquals(0, clickSelection.size());
+		assertFalse(clickSelection.undo());
+	}
+
+	@Test
+	public void testSetAlgebraMergesRanges() {
+		final List<SelectionDeltaEvent<Integer>> events=new ArrayList<SelectionDeltaEvent<Integer>>();
+		clickSelection.addListener(new Object() {
+			@Subscribe
+			public void onDelta(SelectionDeltaEvent<Integer> event) {
+				events.add(event);
+			}
+		});
+		RangeClickSelection<Integer> visible=new RangeClickSelection<Integer>(listInteger);
+		visible.selectRange(1, 3);
+		clickSelection.normalClick(1);
+		clickSelection.ctrlClick(3);
+		clickSelection.setUndoLimit(10, Long.MAX_VALUE);
+		assertTrue(clickSelection.union(visible));
+		assertEquals("[0-3]", clickSelection.selectedRanges().toString());
+		assertEquals("[1, 3]", events.get(events.size() - 1).added.toString());
+		assertTrue(clickSelection.intersect(visible));
+		assertEquals("[1-3]", clickSelection.selectedRanges().toString());
+		assertFalse(clickSelection.intersect(visible));
+		assertTrue(clickSelection.subtract(Collections.singletonList(3)));
+		assertEquals("[1, 3]", clickSelection.selectedRanges().toString());
+		assertTrue(clickSelection.subtract(visible));
+		assertEquals(0, clickSelection.size());
+		assertTrue(clickSelection.undo());
+		assertTrue(clickSelection.undo());
+		assertTrue(clickSelection.undo());
+		assertTrue(clickSelection.undo());
+		assertEquals("[0, 2]", clickSelection.selectedRanges().toString());
+	}
+
+	@Test
+	public void testKeyboardNavigationFiresIncrementalDeltas() {
+		final List<String> deltas=new ArrayList<String>();
+		clickSelection.addSelectionListener(new SelectionAdapter<Integer>() {
+			@Override
+			public void onDelta(SelectionDelta delta) {
+				deltas.add(delta.toString());
+			}
+		});
+		clickSelection.moveLeadTo(0, 0);
+		for(int i=0; i<3; i++) {
+			clickSelection.moveLead(1, InputEvent.SHIFT_MASK);
+		}
+		assertEquals("[0-3]", clickSelection.selectedRanges().toString());
+		assertEquals("[cleared, added=[0], removed=[], added=[1], removed=[], added=[2], removed=[], added=[3], removed=[]]",
+				deltas.toString());
+		clickSelection.moveLead(-2, InputEvent.SHIFT_MASK);
+		assertEquals("[0-1]", clickSelection.selectedRanges().toString());
+		assertEquals("added=[], removed=[2-3]", deltas.get(deltas.size() - 1));
+		
+		clickSelection.ctrlClickAt(4);		//something else happened, the next move starts over from it
+		clickSelection.moveLead(-1, InputEvent.SHIFT_MASK);
+		assertEquals("[3-4]", clickSelection.selectedRanges().toString());
+	}
+
+	@Test
+	public void testRepeatedShiftClickFiresOnlyTheChange() {
+		final List<String> deltas=new ArrayList<String>();
+		clickSelection.addSelectionListener(new SelectionAdapter<Integer>() {
+			@Override
+			public void onDelta(SelectionDelta delta) {
+				deltas.add(delta.toString());
+			}
+		});
+		clickSelection.normalClick(2);
+		clickSelection.shiftClick(4);
+		deltas.clear();
+		clickSelection.shiftClick(5);
+		clickSelection.shiftClick(3);
+		clickSelection.shiftClick(1);
+		assertEquals("[added=[4], removed=[], added=[], removed=[3-4], added=[0], removed=[2]]", deltas.toString());
+		assertEquals("[0-1]", clickSelection.selectedRanges().toString());
+	}
+
+	@Test
+	public void testReadOptimizedPublishesRanges() throws InterruptedException {
+		clickSelection.normalClickAt(0);
+		clickSelection.setReadOptimized(true);
+		clickSelection.shiftClickAt(4);
+		clickSelection.unselect(2);
+		final AtomicReference<String> seen=new AtomicReference<String>();
+		Thread reader=new Thread() {
+			@Override
+			public void run() {
+				seen.set(clickSelection.isSelectedAt(1) + " " + clickSelection.isRangeSelected(3, 4) + " "
+						+ clickSelection.size() + " " + clickSelection.selectedRanges());
+			}
+		};
+		reader.start();
+		reader.join();
+		assertEquals("false true 4 [0, 2-4]", seen.get());
+		
+		clickSelection.setReadOptimized(false);
+		clickSelection.clearSelection();
+		assertEquals(0, clickSelection.size());
+	}
+	
+	@Test
+	public void testCollectionChangesRefreshHashResolver() {
+		List<Integer> linked=new LinkedList<Integer>(listInteger);
+		RangeClickSelection<Integer> selection=new RangeClickSelection<Integer>(linked, new HashIndexResolver<Integer>(linked));
+		selection.normalClick(3);
+		assertTrue(selection.isSelectedAt(2));
+		linked.add(0, 10);
+		selection.itemsInserted(0, 1);
+		selection.ctrlClick(5);
+		assertEquals("[3, 5]", selection.selectedRanges().toString());
+		selection.itemsRemoved(1, 0);
+		assertEquals("[3, 5]", selection.selectedRanges().toString());
+	}
+}
@@ -0,0 +1,185 @@
+package com.lqb.multiselection;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Test;
+
+public class TestSelectionFile {
+	private static byte[] write(IndexRangeSet positions) throws IOException {
+		ByteArrayOutputStream bytes=new ByteArrayOutputStream();
+		SelectionFile.write(positions, new DataOutputStream(bytes));
+		return bytes.toByteArray();
+	}
+
+	private static DataInputStream read(byte[] data) {
+		return new DataInputStream(new ByteArrayInputStream(data));
+	}
+
+	private static File save(byte[] data) throws IOException {
+		File file=File.createTempFile("selection", ".bin");
+		file.deleteOnExit();
+		FileOutputStream out=new FileOutputStream(file);
+		try {
+			out.write(data);
+		} finally {
+			out.close();
+		}
+		return file;
+	}
+
+	@Test
+	public void testRunsRoundTrip() throws IOException {
+		IndexRangeSet positions=new IndexRangeSet();
+		positions.add(5, 5);
+		positions.add(100, 50000000);
+		byte[] data=write(positions);
+		assertEquals(SelectionFile.RUNS, data[6]);
+		assertEquals(SelectionFile.HEADER_SIZE + 8 + 2 * 8, data.length);
+		assertEquals(positions, SelectionFile.readRanges(read(data)));
+	}
+
+	@Test
+	public void testBitmapRoundTrip() throws IOException {
+		IndexRangeSet positions=new IndexRangeSet();
+		for(int i=1000; i<2000; i+=2) {
+			positions.add(i, i);
+		}
+		positions.add(2001, 2010);
+		byte[] data=write(positions);
+		assertEquals(SelectionFile.BITMAP, data[6]);
+		assertEquals(positions, SelectionFile.readRanges(read(data)));
+	}
+
+	@Test
+	public void testIntBitmapRoundTrip() throws IOException {
+		IntBitmap values=new IntBitmap();
+		values.addRange(0, 10000000);
+		values.add(Integer.MAX_VALUE);
+		ByteArrayOutputStream bytes=new ByteArrayOutputStream();
+		SelectionFile.write(values, new DataOutputStream(bytes));
+		assertEquals(values, SelectionFile.readBitmap(read(bytes.toByteArray())));
+	}
+
+	@Test
+	public void testEmpty() throws IOException {
+		byte[] data=write(new IndexRangeSet());
+		assertTrue(SelectionFile.readRanges(read(data)).isEmpty());
+		MappedSelection mapped=new MappedSelection(save(data));
+		try {
+			assertEquals(0, mapped.size());
+			assertFalse(mapped.isSelected(0));
+		} finally {
+			mapped.close();
+		}
+	}
+
+	@Test(expected=IOException.class)
+	public void testBitmapPastTheLastPosition() throws IOException {
+		IntBitmap values=new IntBitmap();
+		for(int i=Integer.MAX_VALUE - 200; i>0; i+=2) {
+			values.add(i);
+		}
+		ByteArrayOutputStream bytes=new ByteArrayOutputStream();
+		SelectionFile.write(values, new DataOutputStream(bytes));
+		byte[] data=bytes.toByteArray();
+		assertEquals(SelectionFile.BITMAP, data[6]);
+		assertEquals(values, SelectionFile.readBitmap(read(data)));
+		Arrays.fill(data, data.length - 8, data.length, (byte) -1);		//bits after Integer.MAX_VALUE
+		SelectionFile.readBitmap(read(data));
+	}
+
+	@Test
+	public void testIntBitmapRunsAcrossChunks() throws IOException {
+		IntBitmap values=new IntBitmap();
+		values.addRange(65000, 70000);
+		values.add(131071);
+		values.add(131072);
+		values.add(200000);
+		ByteArrayOutputStream bytes=new ByteArrayOutputStream();
+		SelectionFile.write(values, new DataOutputStream(bytes));
+		byte[] data=bytes.toByteArray();
+		assertEquals(SelectionFile.RUNS, data[6]);
+		assertEquals(SelectionFile.HEADER_SIZE + 8 + 3 * 8, data.length);
+		assertEquals(values, SelectionFile.readBitmap(read(data)));
+	}
+
+	@Test
+	public void testCorruptRuns() throws IOException {
+		IndexRangeSet positions=new IndexRangeSet();
+		positions.add(10, 20);
+		byte[] data=write(positions);
+		assertEquals(SelectionFile.RUNS, data[6]);
+		byte[] reversed=data.clone();
+		reversed[reversed.length - 1]=5;		//run 10-5
+		byte[] negative=data.clone();
+		negative[SelectionFile.HEADER_SIZE + 8]=(byte) 0x80;		//run starting at a negative position
+		for(byte[] corrupt : Arrays.asList(reversed, negative)) {
+			try {
+				SelectionFile.readRanges(read(corrupt));
+				fail();
+			} catch(IOException e) {
+				//expected
+			}
+		}
+	}
+
+	@Test(expected=IOException.class)
+	public void testNotASelectionFile() throws IOException {
+		SelectionFile.readRanges(read(new byte[32]));
+	}
+
+	@Test
+	public void testMappedLookups() throws IOException {
+		IndexRangeSet runs=new IndexRangeSet();
+		runs.add(3, 7);
+		runs.add(20, 20);
+		runs.add(1000000, 2000000);
+		IndexRangeSet dense=new IndexRangeSet();
+		for(int i=64; i<400; i+=3) {
+			dense.add(i, i);
+		}
+		List<IndexRangeSet> all=new ArrayList<IndexRangeSet>();
+		all.add(runs);
+		all.add(dense);
+		for(IndexRangeSet positions : all) {
+			MappedSelection mapped=new MappedSelection(save(write(positions)));
+			try {
+				assertEquals(positions.size(), mapped.size());
+				for(int i=-1; i<2000010; i+=(i < 1000 ? 1 : 997)) {
+					assertEquals("position " + i, positions.contains(i), mapped.isSelected(i));
+				}
+			} finally {
+				mapped.close();
+			}
+		}
+	}
+
+	@Test
+	public void testRestoreSelection() throws IOException {
+		List<Integer> list=new ArrayList<Integer>();
+		for(int i=0; i<10; i++) {
+			list.add(i);
+		}
+		RangeClickSelection<Integer> saved=new RangeClickSelection<Integer>(list);
+		saved.normalClick(2);
+		saved.shiftClick(4);
+		saved.ctrlClick(8);
+		RangeClickSelection<Integer> restored=new RangeClickSelection<Integer>(list);
+		restored.selectPositions(SelectionFile.readRanges(read(write(saved.selectedRanges()))));
+		assertEquals(saved.selectedRanges(), restored.selectedRanges());
+	}
+}
@@ -0,0 +1,98 @@
+package com.lqb.multiselection;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Before;
+import org.junit.Test;
+
+public class TestSelectionRegistry {
+	private List<String> list;
+	private SelectionRegistry<String> registry;
+	
+	@Before
+	public void setupTest() {
+		list=new ArrayList<String>();
+		for(int i=0; i<10; i++) {
+			list.add("item" + i);
+		}
+		registry=new SelectionRegistry<String>(list);
+	}
+	
+	@Test
+	public void testSessionsAreIndependent() {
+		RangeClickSelection<String> alice=registry.open("alice");
+		RangeClickSelection<String> bob=registry.open("bob");
+		assertSame(alice, registry.open("alice"));
+		assertEquals(2, registry.sessionCount());
+		
+		alice.normalClick("item2");
+		alice.shiftClick("item5");
+		bob.ctrlClick("item7");
+		assertEquals("[2-5]", alice.selectedRanges().toString());
+		assertEquals("[7]", bob.selectedRanges().toString());
+		assertFalse(bob.isSelected("item3"));
+		
+		assertSame(bob, registry.close("bob"));
+		assertNull(registry.get("bob"));
+		assertEquals(1, registry.sessionCount());
+	}
+	
+	@Test
+	public void testCollectionChangesReachEverySession() {
+		RangeClickSelection<String> alice=registry.open("alice");
+		RangeClickSelection<String> bob=registry.open("bob");
+		alice.ctrlClick("item4");
+		bob.ctrlClick("item8");
+		
+		list.add(0, "new");
+		registry.itemsInserted(0, 1);
+		assertEquals("[5]", alice.selectedRanges().toString());
+		assertEquals("[9]", bob.selectedRanges().toString());
+		assertTrue(alice.isSelected("item4"));
+		
+		list.remove(0);
+		list.remove(0);
+		registry.itemsRemoved(0, 2);
+		assertEquals("[3]", alice.selectedRanges().toString());
+		bob.ctrlClick("item9");		//found at its new position
+		assertEquals("[7-8]", bob.selectedRanges().toString());
+	}
+	
+	@Test
+	public void testConcurrentSessions() throws InterruptedException {
+		final int sessions=200;
+		final AtomicInteger failures=new AtomicInteger();
+		List<Thread> threads=new ArrayList<Thread>();
+		for(int t=0; t<4; t++) {
+			final int offset=t;
+			Thread thread=new Thread() {
+				@Override
+				public void run() {
+					for(int i=offset; i<sessions; i+=4) {
+						RangeClickSelection<String> selection=registry.open(i);
+						selection.normalClick("item" + (i % 10));
+						selection.shiftClick("item9");
+						if(selection.size()!=10 - i % 10) {
+							failures.incrementAndGet();
+						}
+					}
+				}
+			};
+			threads.add(thread);
+			thread.start();
+		}
+		for(Thread thread : threads) {
+			thread.join();
+		}
+		assertEquals(0, failures.get());
+		assertEquals(sessions, registry.sessionCount());
+	}
+}
@@ -1,6 +1,9 @@
 package com.lqb.multiselection;
 import static org.junit.Assert.*;
 
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicReference;
+
 import org.junit.Before;
 import org.junit.Test;
 
@@ -65,4 +68,94 @@ public class TestSetSelection {
 		assertEquals(0, newSelection.size());
 	}
 	
+	@Test
+	public void testReadOptimizedPublishesChanges() throws InterruptedException {
+		newSelection.select(1);
+		newSelection.setReadOptimized(true);
+		newSelection.select(2);
+		newSelection.unselect(1);
+		final AtomicReference<String> seen=new AtomicReference<String>();
+		Thread reader=new Thread() {
+			@Override
+			public void run() {
+				seen.set(newSelection.isSelected(1) + " " + newSelection.isSelected(2) + " " + newSelection.size());
+			}
+		};
+		reader.start();
+		reader.join();
+		assertEquals("false true 1", seen.get());
+	}
+	
+	@Test
+	public void testReadOptimizedPublishesOnOutermostUnlock() throws InterruptedException {
+		newSelection.setReadOptimized(true);
+		final AtomicReference<Boolean> seen=new AtomicReference<Boolean>();
+		Thread reader=new Thread() {
+			@Override
+			public void run() {
+				seen.set(newSelection.isSelected(1));
+			}
+		};
+		newSelection.lock.lock();
+		try {
+			newSelection.select(1);
+			assertTrue(newSelection.isSelected(1));
+			reader.start();
+			reader.join();
+			assertFalse(seen.get());
+		} finally {
+			newSelection.unlock();
+		}
+		assertEquals(1, newSelection.size());
+	}
+	
+	@Test
+	public void testSnapshotDoesNotChange() {
+		newSelection.select(1);
+		newSelection.select(2);
+		SelectionSnapshot<Integer> snapshot=newSelection.snapshot();
+		assertTrue(snapshot==newSelection.snapshot());
+		newSelection.unselect(1);
+		newSelection.select(3);
+		assertEquals(2, snapshot.size());
+		assertTrue(snapshot.contains(1));
+		assertFalse(snapshot.contains(3));
+		assertFalse(newSelection.isSelected(1));
+		assertTrue(newSelection.isSelected(3));
+		newSelection.clearSelection();
+		assertEquals(2, snapshot.size());
+	}
+	
+	@Test
+	public void testIterateWhileChanging() {
+		newSelection.select(1);
+		newSelection.select(2);
+		int count=0;
+		for(Integer element : newSelection) {
+			newSelection.unselect(element);
+			count++;
+		}
+		assertEquals(2, count);
+		assertEquals(0, newSelection.size());
+	}
+	
+	
+	@Test
+	public void testSetAlgebra() {
+		SetSelection<Integer> other=new SetSelection<Integer>();
+		newSelection.select(1);
+		newSelection.select(2);
+		other.select(2);
+		other.select(3);
+		assertTrue(newSelection.union(other));
+		assertEquals(3, newSelection.size());
+		assertFalse(newSelection.union(other));
+		assertTrue(newSelection.intersect(Arrays.asList(1, 3)));
+		assertEquals(2, newSelection.size());
+		assertTrue(newSelection.subtract(other));
+		assertEquals(1, newSelection.size());
+		assertTrue(newSelection.isSelected(1));
+		assertTrue(newSelection.subtract(newSelection));
+		assertEquals(0, newSelection.size());
+	}
 }
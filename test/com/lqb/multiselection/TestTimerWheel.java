@@ -0,0 +1,130 @@
+package com.lqb.multiselection;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Before;
+import org.junit.Test;
+
+public class TestTimerWheel {
+	private TimerWheel wheel;
+
+	@Before
+	public void setupTest() {
+		wheel=new TimerWheel(1, TimeUnit.MILLISECONDS, 16, 50, TimeUnit.MILLISECONDS);
+	}
+
+	private static class Counter extends TimerWheel.Timeout {
+		private final AtomicInteger runs=new AtomicInteger();
+		private volatile long ranAt;
+		private final CountDownLatch done;
+
+		Counter(CountDownLatch done) {
+			this.done=done;
+		}
+
+		@Override
+		public void run() {
+			ranAt=System.nanoTime();
+			runs.incrementAndGet();
+			done.countDown();
+		}
+	}
+
+	@Test
+	public void testRunsAfterDelay() throws InterruptedException {
+		Counter counter=new Counter(new CountDownLatch(1));
+		long start=System.nanoTime();
+		wheel.schedule(counter, 30, TimeUnit.MILLISECONDS);
+		assertTrue(counter.done.await(2, TimeUnit.SECONDS));
+		assertTrue(counter.ranAt - start>=TimeUnit.MILLISECONDS.toNanos(30));
+		assertEquals(1, counter.runs.get());
+	}
+
+	@Test
+	public void testCancelAndReschedule() throws InterruptedException {
+		Counter cancelled=new Counter(new CountDownLatch(1));
+		Counter moved=new Counter(new CountDownLatch(1));
+		wheel.schedule(cancelled, 20, TimeUnit.MILLISECONDS);
+		wheel.schedule(moved, 20, TimeUnit.MILLISECONDS);
+		assertTrue(wheel.cancel(cancelled));
+		assertFalse(wheel.cancel(cancelled));
+		long start=System.nanoTime();
+		wheel.schedule(moved, 60, TimeUnit.MILLISECONDS);
+		assertTrue(moved.done.await(2, TimeUnit.SECONDS));
+		assertTrue(moved.ranAt - start>=TimeUnit.MILLISECONDS.toNanos(60));
+		Thread.sleep(30);
+		assertEquals(0, cancelled.runs.get());
+		assertEquals(1, moved.runs.get());
+	}
+
+	@Test
+	public void testManyTimeoutsBeyondOneTurn() throws InterruptedException {
+		CountDownLatch done=new CountDownLatch(200);
+		List<Counter> counters=new ArrayList<Counter>();
+		for(int i=0; i<200; i++) {
+			Counter counter=new Counter(done);
+			counters.add(counter);
+			wheel.schedule(counter, i % 40, TimeUnit.MILLISECONDS);
+		}
+		assertTrue(done.await(2, TimeUnit.SECONDS));
+		for(Counter counter : counters) {
+			assertEquals(1, counter.runs.get());
+		}
+	}
+
+	@Test
+	public void testThreadStopsWhenIdle() throws InterruptedException {
+		assertFalse(wheel.isRunning());
+		Counter counter=new Counter(new CountDownLatch(1));
+		wheel.schedule(counter, 5, TimeUnit.MILLISECONDS);
+		assertTrue(wheel.isRunning());
+		assertTrue(counter.done.await(2, TimeUnit.SECONDS));
+		long deadline=System.currentTimeMillis() + 2000;
+		while(wheel.isRunning() && System.currentTimeMillis() < deadline) {
+			Thread.sleep(10);
+		}
+		assertFalse(wheel.isRunning());
+		Counter again=new Counter(new CountDownLatch(1));
+		wheel.schedule(again, 5, TimeUnit.MILLISECONDS);
+		assertTrue(again.done.await(2, TimeUnit.SECONDS));
+	}
+
+	@Test
+	public void testErrorDoesNotStopTheWheel() throws InterruptedException {
+		final List<Throwable> reported=new ArrayList<Throwable>();
+		Thread.UncaughtExceptionHandler handler=Thread.getDefaultUncaughtExceptionHandler();
+		Thread.setDefaultUncaughtExceptionHandler(new Thread.UncaughtExceptionHandler() {
+			@Override
+			public void uncaughtException(Thread t, Throwable e) {
+				synchronized(reported) {
+					reported.add(e);
+				}
+			}
+		});
+		try {
+			wheel.schedule(new TimerWheel.Timeout() {
+				@Override
+				public void run() {
+					throw new AssertionError("failing timeout");
+				}
+			}, 1, TimeUnit.MILLISECONDS);
+			Counter counter=new Counter(new CountDownLatch(1));
+			wheel.schedule(counter, 20, TimeUnit.MILLISECONDS);
+			assertTrue(counter.done.await(2, TimeUnit.SECONDS));
+			synchronized(reported) {
+				assertEquals(1, reported.size());
+				assertEquals("failing timeout", reported.get(0).getMessage());
+			}
+		} finally {
+			Thread.setDefaultUncaughtExceptionHandler(handler);
+		}
+	}
+}
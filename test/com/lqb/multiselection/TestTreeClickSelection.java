@@ -0,0 +1,172 @@
+package com.lqb.multiselection;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.google.common.eventbus.Subscribe;
+import com.lqb.multiselection.events.SelectionDeltaEvent;
+
+public class TestTreeClickSelection {
+	/*
+	 * 0 root
+	 *   1 a
+	 *     2 a1
+	 *     3 a2
+	 *   4 b
+	 *   5 c
+	 *     6 c1
+	 */
+	private static final List<String> NODES=Arrays.asList("root", "a", "a1", "a2", "b", "c", "c1");
+	private static final int[] SUBTREE_SIZES={7, 3, 1, 1, 1, 2, 1};
+
+	private TreeClickSelection<String> clickSelection;
+
+	@Before
+	public void setupTest() {
+		clickSelection=new TreeClickSelection<String>(new TreeSource<String>() {
+			@Override
+			public int size() {
+				return NODES.size();
+			}
+
+			@Override
+			public String keyAt(int index) {
+				return NODES.get(index);
+			}
+
+			@Override
+			public int indexOf(String key) {
+				return NODES.indexOf(key);
+			}
+
+			@Override
+			public int subtreeSize(int index) {
+				return SUBTREE_SIZES[index];
+			}
+		});
+	}
+
+	@Test
+	public void testNormalClickSelectsSubtree() {
+		clickSelection.normalClick("a");
+		assertEquals("[1-3]", clickSelection.selectedRanges().toString());
+		assertTrue(clickSelection.isSelected("a2"));
+		clickSelection.normalClick("a");
+		assertEquals(0, clickSelection.size());
+	}
+
+	@Test
+	public void testNormalClickLeaf() {
+		clickSelection.normalClick("a");
+		clickSelection.normalClick("a1");
+		assertEquals("[2]", clickSelection.selectedRanges().toString());
+	}
+
+	@Test
+	public void testCtrlClickTogglesSubtree() {
+		clickSelection.normalClick("b");
+		clickSelection.ctrlClick("c");
+		assertEquals("[4-6]", clickSelection.selectedRanges().toString());
+		clickSelection.ctrlClick("c");
+		assertEquals("[4]", clickSelection.selectedRanges().toString());
+	}
+
+	@Test
+	public void testCtrlClickPartiallySelectedSubtree() {
+		clickSelection.normalClick("a2");
+		clickSelection.ctrlClick("a");
+		assertTrue(clickSelection.isSubtreeSelected(1));
+		clickSelection.ctrlClick("a");
+		assertEquals(0, clickSelection.size());
+	}
+
+	@Test
+	public void testShiftClickIncludesSubtreeOfLastNode() {
+		clickSelection.normalClick("a2");
+		clickSelection.shiftClick("c");
+		assertEquals("[3-6]", clickSelection.selectedRanges().toString());
+		clickSelection.shiftClick("a1");
+		assertEquals("[2-3]", clickSelection.selectedRanges().toString());
+	}
+
+	@Test
+	public void testShiftClickUpFromFolder() {
+		clickSelection.normalClick("c");
+		clickSelection.shiftClick("a2");
+		assertEquals("[3-6]", clickSelection.selectedRanges().toString());
+	}
+
+	@Test
+	public void testSelectAndUnselectSubtree() {
+		clickSelection.normalClick("b");
+		clickSelection.selectSubtree(0);
+		assertEquals(7, clickSelection.size());
+		clickSelection.unselectSubtree(1);
+		assertEquals("[0, 4-6]", clickSelection.selectedRanges().toString());
+		assertFalse(clickSelection.isSubtreeSelected(0));
+		assertTrue(clickSelection.isSubtreeSelected(5));
+		clickSelection.shiftClick("c1");
+		assertEquals("[4-6]", clickSelection.selectedRanges().toString());
+	}
+
+	@Test
+	public void testSubtreeDelta() {
+		final List<SelectionDeltaEvent<String>> events=new ArrayList<SelectionDeltaEvent<String>>();
+		clickSelection.addListener(new Object() {
+			@Subscribe
+			public void onDelta(SelectionDeltaEvent<String> event) {
+				events.add(event);
+			}
+		});
+		clickSelection.selectSubtree(0);
+		clickSelection.ctrlClick("a");
+		assertEquals(2, events.size());
+		assertEquals("[1-3]", events.get(1).removed.toString());
+		assertTrue(events.get(1).added.isEmpty());
+	}
+
+	@Test
+	public void testLargeSubtreeDoesNotReadNodes() {
+		final AtomicInteger reads=new AtomicInteger();
+		//1000 folders of 999999 leaves each
+		TreeClickSelection<Integer> tree=new TreeClickSelection<Integer>(new TreeSource<Integer>() {
+			@Override
+			public int size() {
+				return 1000000000;
+			}
+
+			@Override
+			public Integer keyAt(int index) {
+				reads.incrementAndGet();
+				return index;
+			}
+
+			@Override
+			public int indexOf(Integer key) {
+				return key;
+			}
+
+			@Override
+			public int subtreeSize(int index) {
+				return index % 1000000==0 ? 1000000 : 1;
+			}
+		});
+		tree.ctrlClickAt(3000000);
+		tree.ctrlClickAt(5000000);
+		assertEquals(2000000, tree.size());
+		tree.shiftClickAt(999000000);
+		assertEquals(995000000, tree.size());
+		tree.ctrlClickAt(7000000);
+		assertEquals(994000000, tree.size());
+		assertTrue(reads.get() < 5);
+	}
+}